@@ -0,0 +1,35 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+//the planning of a whole day's flight, from the loaded snapshot to the positions and sensors visited
+//the seeded plan is given a fixed number of tour restarts and a budget too large to run out, such that it does the same work every time
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Daqmaps.tourRestarts=200", "-Daqmaps.tourBudgetMillis=600000"})
+public class DronePathBenchmark {
+	private final static long seed = 5678;
+
+	//flying each leg to the closest sensor not yet visited
+	@Benchmark
+	public FlightPlan greedy(PlannerFixtures fixtures) {
+		return fixtures.planner.dronePath(fixtures.snapshot, PlannerFixtures.initPos);
+	}
+
+	//costing every leg, ordering the sensors with the tour optimizer and flying that order
+	@Benchmark
+	public FlightPlan seeded(PlannerFixtures fixtures) {
+		return fixtures.planner.dronePath(fixtures.snapshot, PlannerFixtures.initPos, seed);
+	}
+
+}
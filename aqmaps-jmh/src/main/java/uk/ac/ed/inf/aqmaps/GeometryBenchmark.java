@@ -0,0 +1,104 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mapbox.geojson.Point;
+
+//the single-move operations the planner repeats most: choosing a direction, making the move, checking it against the buildings
+//and deflecting it off them; each call takes the next of the fixture's moves, such that the JIT can't fold the work away
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GeometryBenchmark {
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int next;
+		private final List<List<Point>> flights = new ArrayList<List<Point>>();
+
+		@Setup(Level.Trial)
+		public void prepare(PlannerFixtures fixtures) {
+			for(var i=0; i<fixtures.crossingFrom.length; i++) {
+				flights.add(fixtures.flightTo(i));
+			}
+		}
+
+		int next() {
+			return next++ & (PlannerFixtures.numMoves - 1);
+		}
+
+		int nextCrossing() {
+			return next++ % flights.size();
+		}
+	}
+
+	@Benchmark
+	public int computeDir(PlannerFixtures fixtures, Cursor cursor) {
+		var i = cursor.next();
+		return DroneConstraints.computeDir(fixtures.from[i], fixtures.to[i]);
+	}
+
+	@Benchmark
+	public Point nextPos(PlannerFixtures fixtures, Cursor cursor) {
+		var i = cursor.next();
+		return DroneConstraints.nextPos(fixtures.dirs[i], fixtures.from[i]);
+	}
+
+	//one side of one building, as NoFlyZones checks it
+	@Benchmark
+	public boolean noIntersection(PlannerFixtures fixtures, Cursor cursor) {
+		var i = cursor.next();
+		var e = i % fixtures.noFlyIndex.numEdges();
+		var from = fixtures.from[i];
+		var to = fixtures.to[i];
+		return NoFlyZones.noIntersection(from.longitude(), from.latitude(), to.longitude(), to.latitude(),
+				fixtures.noFlyIndex.lng1(e), fixtures.noFlyIndex.lat1(e), fixtures.noFlyIndex.lng2(e), fixtures.noFlyIndex.lat2(e));
+	}
+
+	//every side of every building, walking the nested lists of NoFlyZones
+	@Benchmark
+	public boolean noIntersectionsLists(PlannerFixtures fixtures, Cursor cursor) throws IOException, InterruptedException {
+		var i = cursor.next();
+		return NoFlyZones.noIntersections(fixtures.from[i], fixtures.to[i], fixtures.noFlyZonesCoords);
+	}
+
+	//every side of every building, through the index of their bounding boxes
+	@Benchmark
+	public boolean noIntersectionsIndex(PlannerFixtures fixtures, Cursor cursor) {
+		var i = cursor.next();
+		return fixtures.noFlyIndex.noIntersections(fixtures.from[i], fixtures.to[i]);
+	}
+
+	//as above, on plain coordinates as the lattice search and leg planner call it
+	@Benchmark
+	public boolean noIntersectionsPrimitive(PlannerFixtures fixtures, Cursor cursor) {
+		var i = cursor.next();
+		var from = fixtures.from[i];
+		var to = fixtures.to[i];
+		return fixtures.noFlyIndex.noIntersections(from.longitude(), from.latitude(), to.longitude(), to.latitude());
+	}
+
+	@Benchmark
+	public Point avoidIllegalMove(PlannerFixtures fixtures, Cursor cursor) {
+		var i = cursor.nextCrossing();
+		return DroneConstraints.avoidIllegalMove(fixtures.crossingFrom[i], fixtures.crossingTo[i], fixtures.noFlyIndex, cursor.flights.get(i));
+	}
+
+}
@@ -0,0 +1,91 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.mapbox.geojson.Point;
+
+//the data the benchmarks run on: one day of WebServer.zip, read without a web server, and fixed sets of moves over its area
+//the moves are drawn from a fixed seed, such that every run of a benchmark measures the same work
+@State(Scope.Benchmark)
+public class PlannerFixtures {
+	//where WebServer.zip is, overridable with -Daqmaps.webServerZip
+	public final static String zipFile = System.getProperty("aqmaps.webServerZip", "../WebServer.zip");
+	public final static Point initPos = Point.fromLngLat(-3.1878, 55.9444);
+	final static int numMoves = 1024; //a power of 2, such that the next move is picked with a mask
+	private final static int numCrossingMoves = 256;
+	private final static int maxAttempts = 1_000_000;
+
+	@Param({"01-01-2020", "12-12-2020", "15-06-2021"})
+	public String date;
+
+	ZipContentSource source;
+	DaySnapshot snapshot;
+	NoFlyIndex noFlyIndex;
+	List<List<List<Point>>> noFlyZonesCoords;
+	DroneMovement planner;
+
+	//moves between random positions in the area, most of which cross no building
+	Point[] from = new Point[numMoves];
+	Point[] to = new Point[numMoves];
+	int[] dirs = new int[numMoves];
+
+	//moves straight for a building from outside it, each of which crosses one of its sides
+	Point[] crossingFrom = new Point[numCrossingMoves];
+	Point[] crossingTo = new Point[numCrossingMoves];
+
+	@Setup(Level.Trial)
+	public void load() throws IOException, InterruptedException {
+		var dayMonthYear = date.split("-");
+		source = ZipContentSource.open(Paths.get(zipFile));
+		snapshot = DaySnapshot.load(source, new SensorLocation(source, null), dayMonthYear[2], dayMonthYear[1], dayMonthYear[0]);
+		noFlyIndex = NoFlyIndex.load(source);
+		noFlyZonesCoords = NoFlyZones.noFlyZoneCoordPairs(source);
+		planner = new DroneMovement(noFlyIndex);
+
+		var random = new Random(1);
+		for(var i=0; i<numMoves; i++) {
+			from[i] = randomPosition(random);
+			to[i] = randomPosition(random);
+			dirs[i] = 10*random.nextInt(FlightMath.numDirs);
+		}
+		var found = 0;
+		for(var attempt=0; attempt<maxAttempts && found<numCrossingMoves; attempt++) {
+			var pos = randomPosition(random);
+			var building = random.nextInt(noFlyIndex.numBuildings());
+			var next = DroneConstraints.nextPos(DroneConstraints.computeDir(pos, noFlyIndex.centre(building)), pos);
+			if(noFlyIndex.insideAnyBuilding(pos.longitude(), pos.latitude()) == false && noFlyIndex.noIntersections(pos, next) == false) {
+				crossingFrom[found] = pos;
+				crossingTo[found] = next;
+				found++;
+			}
+		}
+		if(found < numCrossingMoves) {
+			throw new IllegalStateException("Only " + found + " moves crossing a building found");
+		}
+	}
+
+	//returns a random position within the area
+	private static Point randomPosition(Random random) {
+		var lng = -3.192473 + (-3.184319 - -3.192473)*random.nextDouble();
+		var lat = 55.942617 + (55.946233 - 55.942617)*random.nextDouble();
+		return Point.fromLngLat(lng, lat);
+	}
+
+	//returns the positions before the crossing move i, as the flight so far which avoidIllegalMove looks back over
+	List<Point> flightTo(int i) {
+		var positions = new ArrayList<Point>();
+		positions.add(crossingFrom[i]);
+		return positions;
+	}
+
+}
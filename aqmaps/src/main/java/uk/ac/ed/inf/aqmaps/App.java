@@ -1,11 +1,77 @@
 package uk.ac.ed.inf.aqmaps;
 
 import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+
+import com.mapbox.geojson.Point;
+
+public class App {
 
-public class App extends WriteReadings{
-	
     public static void main( String[] args ) throws IOException, InterruptedException
     {
+    	try {
+    		run(args);
+    	} catch (ConnectException | DateTimeException e) {
+    		System.out.println("Fatal error: " + e.getMessage() + ".");
+    		System.exit(1);
+    	}
+    }
+
+    private static void run(String[] args) throws IOException, InterruptedException
+    {
+    	//batch mode: batch <dd-mm-yyyy..dd-mm-yyyy | dd-mm-yyyy,dd-mm-yyyy,...> lat lon seed port [parallelism]
+    	if(args[0].equals("batch")) {
+    		RunMetrics.registerMBean(); //a batch runs long enough to be watched
+    		var parallelism = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+    		BatchPlanner.run(args[1], args[2], args[3], args[4], args[5], parallelism);
+    		return;
+    	}
+
+    	//launch mode: launch dd-mm-yyyy <COLSxROWS | lat,lng;lat,lng;...> seed port [parallelism] ranks candidate launch positions
+    	if(args[0].equals("launch")) {
+    		var parallelism = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+    		LaunchPlanner.run(args[1], args[2], args[3], args[4], parallelism);
+    		return;
+    	}
+
+    	//fleet mode: fleet dd mm yyyy lat lon seed port drones shares the day's sensors out between several drones
+    	if(args[0].equals("fleet")) {
+    		FleetPlanner.run(args[1], args[2], args[3], args[4], args[5], args[6], args[7], Integer.parseInt(args[8]));
+    		return;
+    	}
+
+    	//daemon mode: daemon port webServerPort [threads] plans flights asked for over HTTP until stopped, see PlannerService
+    	if(args[0].equals("daemon")) {
+    		RunMetrics.registerMBean();
+    		var threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+    		var service = PlannerService.start(args[2], Integer.parseInt(args[1]), threads);
+    		System.out.println("Planning flights at port " + service.port());
+    		Thread.currentThread().join(); //the service's threads are daemons, so the program lives as long as this thread
+    		return;
+    	}
+
+    	//validate mode: validate <flightpath file | directory> port [parallelism] checks flights against the rules, see FlightValidator
+    	if(args[0].equals("validate")) {
+    		var parallelism = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+    		if(FlightValidator.run(args[1], args[2], parallelism) > 0) {
+    			System.exit(1);
+    		}
+    		return;
+    	}
+
+    	//serve mode: serve <WebServer.zip> port [latencyMillis jitterMillis errorRate seed] serves the zip until stopped
+    	if(args[0].equals("serve")) {
+    		var faults = args.length > 6
+    				? new LocalWebServer.Faults(Long.parseLong(args[3]), Long.parseLong(args[4]), Double.parseDouble(args[5]), Long.parseLong(args[6]))
+    				: LocalWebServer.Faults.none();
+    		var server = LocalWebServer.start(ZipContentSource.open(Paths.get(args[1])), Integer.parseInt(args[2]), faults, ReadWebServer.defaultParallelism);
+    		System.out.println("Serving " + args[1] + " at port " + server.port());
+    		Thread.currentThread().join(); //the server's threads are daemons, so the program lives as long as this thread
+    		return;
+    	}
+
     	var day = args[0];
     	var month = args[1];
     	var year = args[2];
@@ -13,11 +79,15 @@ public class App extends WriteReadings{
     	var lon = args[4];
     	var seed = args[5];
     	var port = args[6];
-    	
-    	
-    	writeTxtFile(day, month, year, lat, lon, port);
-    	writeGeojsonFile(day, month, year, lat, lon, port);
-    	
+
+
+    	var source = ReadWebServer.forPort(port);
+    	var snapshot = DaySnapshot.load(source, new SensorLocation(source, WordsCoordCache.shared()), year, month, day);
+    	var planner = DroneMovement.withDistanceFields(NoFlyIndex.load(source));
+    	var plan = planner.dronePath(snapshot, Point.fromLngLat(Double.parseDouble(lon), Double.parseDouble(lat)), Long.parseLong(seed));
+    	FlightSink.writeAll(FlightSink.defaults(), day, month, year, plan);
+    	RunMetrics.shared().writeJson(Paths.get("metrics-" + day + "-" + month + "-" + year + ".json"));
+
 
     }
 }
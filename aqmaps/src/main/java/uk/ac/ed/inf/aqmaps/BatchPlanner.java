@@ -0,0 +1,147 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.mapbox.geojson.Point;
+
+//plans the flights of many days in one run, several days at once, writing each day's flightpath and readings files
+public class BatchPlanner {
+	//strict, such that an impossible date such as 31-02-2020 is an error rather than moved to the end of its month
+	private final static DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd-MM-uuuu").withResolverStyle(ResolverStyle.STRICT);
+
+	//the outcome of planning one day
+	public static class DaySummary{
+		final LocalDate date;
+		final int movesUsed;
+		final int sensorsVisited;
+		final int numSensors;
+		final String error; //null if the day was planned and written
+
+		DaySummary(LocalDate date, int movesUsed, int sensorsVisited, int numSensors, String error) {
+			this.date = date;
+			this.movesUsed = movesUsed;
+			this.sensorsVisited = sensorsVisited;
+			this.numSensors = numSensors;
+			this.error = error;
+		}
+
+		//returns the line describing this day in the summary file
+		String csvLine() {
+			return date.format(dateFormat) + "," + movesUsed + "," + sensorsVisited + "," + numSensors + "," + (error == null ? "" : error.replace(',', ';'));
+		}
+	}
+
+	//returns the dates given either as a range "dd-mm-yyyy..dd-mm-yyyy" (both ends included) or a list "dd-mm-yyyy,dd-mm-yyyy,..."
+	//throws DateTimeParseException naming the first date which isn't a real date
+	public static List<LocalDate> parseDates(String dates) {
+		var dateList = new ArrayList<LocalDate>();
+		var rangeIndex = dates.indexOf("..");
+		if(rangeIndex >= 0) {
+			var first = LocalDate.parse(dates.substring(0, rangeIndex), dateFormat);
+			var last = LocalDate.parse(dates.substring(rangeIndex + 2), dateFormat);
+			for(var date=first; date.isAfter(last)==false; date=date.plusDays(1)) {
+				dateList.add(date);
+			}
+		}
+		else {
+			for(var date : dates.split(",")) {
+				dateList.add(LocalDate.parse(date.trim(), dateFormat));
+			}
+		}
+		return dateList;
+	}
+
+	//plans the flight of one day once and hands the plan to every sink
+	private static DaySummary planDay(LocalDate date, Point initPos, long seed, ContentSource source, SensorLocation locations, DroneMovement planner, List<FlightSink> sinks) {
+		var day = String.format("%02d", date.getDayOfMonth());
+		var month = String.format("%02d", date.getMonthValue());
+		var year = String.valueOf(date.getYear());
+		try {
+			var snapshot = DaySnapshot.load(source, locations, year, month, day);
+			var plan = planner.dronePath(snapshot, initPos, seed);
+			FlightSink.writeAll(sinks, day, month, year, plan);
+			return new DaySummary(date, plan.numMoves(), plan.numVisited(), snapshot.size(), null);
+		} catch (Exception e) {
+			if(e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			return new DaySummary(date, 0, 0, 0, e.toString());
+		}
+	}
+
+	//plans every date on a pool of at most parallelism threads, returning a summary of each day in the order of dates
+	//a day which fails is reported in its summary and doesn't stop the other days
+	//the no-fly zones are read once and the one planner is shared by every day; each day's plan is handed to every sink
+	public static List<DaySummary> planDays(List<LocalDate> dates, String lat, String lon, String seed, String port, int parallelism, List<FlightSink> sinks) throws IOException, InterruptedException {
+		var initPos = Point.fromLngLat(Double.parseDouble(lon), Double.parseDouble(lat));
+		var tourSeed = Long.parseLong(seed);
+		var source = ReadWebServer.forPort(port);
+		var locations = new SensorLocation(source, WordsCoordCache.shared());
+		var planner = DroneMovement.withDistanceFields(NoFlyIndex.load(source));
+		var pool = new ForkJoinPool(Math.max(1, parallelism));
+		try {
+			var futures = new ArrayList<Future<DaySummary>>();
+			for(var date : dates) {
+				futures.add(pool.submit(() -> planDay(date, initPos, tourSeed, source, locations, planner, sinks)));
+			}
+			var summaries = new ArrayList<DaySummary>();
+			for(var future : futures) {
+				try {
+					summaries.add(future.get());
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return summaries;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	//as above, writing each day's flightpath and readings files
+	public static List<DaySummary> planDays(List<LocalDate> dates, String lat, String lon, String seed, String port, int parallelism) throws IOException, InterruptedException {
+		return planDays(dates, lat, lon, seed, port, parallelism, FlightSink.defaults());
+	}
+
+	//writes batch-summary-<first date>-<last date>.csv, one line per day with the moves used and sensors visited,
+	//and the metrics of the run to metrics-<first date>-<last date>.json
+	public static void writeSummary(List<DaySummary> summaries) throws IOException {
+		if(summaries.isEmpty()) {
+			return;
+		}
+		var first = summaries.get(0).date.format(dateFormat);
+		var last = summaries.get(summaries.size()-1).date.format(dateFormat);
+		try (var fw = new FileWriter("batch-summary-" + first + "-" + last + ".csv")) {
+			fw.write("date,moves,sensors-visited,sensors,error\n");
+			for(var summary : summaries) {
+				fw.write(summary.csvLine() + "\n");
+			}
+		}
+		RunMetrics.shared().writeJson(Paths.get("metrics-" + first + "-" + last + ".json"));
+	}
+
+	//plans the given dates from the given start position, with sensor orders drawn from the seed, prints the summary of each day and writes the summary file
+	public static void run(String dates, String lat, String lon, String seed, String port, int parallelism) throws IOException, InterruptedException {
+		var summaries = planDays(parseDates(dates), lat, lon, seed, port, parallelism);
+		for(var summary : summaries) {
+			if(summary.error == null) {
+				System.out.println(summary.date.format(dateFormat) + ": " + summary.movesUsed + " moves, " + summary.sensorsVisited + "/" + summary.numSensors + " sensors visited");
+			}
+			else {
+				System.out.println(summary.date.format(dateFormat) + ": failed (" + summary.error + ")");
+			}
+		}
+		writeSummary(summaries);
+	}
+
+}
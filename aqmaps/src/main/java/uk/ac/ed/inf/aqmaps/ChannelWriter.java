@@ -0,0 +1,118 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//writes text to a channel through one buffer as UTF-8, such that a file is written as it is produced rather than built up in memory
+//numbers are formatted into a scratch buffer which is reused, such that writing one allocates no String;
+//doubles are written exactly as Double.toString writes them
+final class ChannelWriter implements AutoCloseable {
+	private final static int bufferSize = 64 * 1024;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+	private final StringBuilder scratch = new StringBuilder(32);
+
+	ChannelWriter(WritableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	//opens the file at path for writing, replacing anything already in it
+	static ChannelWriter create(Path path) throws IOException {
+		return new ChannelWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+	}
+
+	private void ensureRoom(int bytes) throws IOException {
+		if(buffer.remaining() < bytes) {
+			flush();
+		}
+	}
+
+	//writes c, which must not be half of a surrogate pair
+	ChannelWriter write(char c) throws IOException {
+		ensureRoom(3);
+		if(c < 0x80) {
+			buffer.put((byte) c);
+		}
+		else if(c < 0x800) {
+			buffer.put((byte) (0xc0 | c >> 6));
+			buffer.put((byte) (0x80 | c & 0x3f));
+		}
+		else {
+			buffer.put((byte) (0xe0 | c >> 12));
+			buffer.put((byte) (0x80 | c >> 6 & 0x3f));
+			buffer.put((byte) (0x80 | c & 0x3f));
+		}
+		return this;
+	}
+
+	//writes every character of text
+	ChannelWriter write(CharSequence text) throws IOException {
+		var length = text.length();
+		for(var i=0; i<length; i++) {
+			var c = text.charAt(i);
+			if(Character.isHighSurrogate(c) && i+1 < length && Character.isLowSurrogate(text.charAt(i+1))) {
+				writeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+			}
+			else {
+				write(c);
+			}
+		}
+		return this;
+	}
+
+	private void writeCodePoint(int codePoint) throws IOException {
+		ensureRoom(4);
+		buffer.put((byte) (0xf0 | codePoint >> 18));
+		buffer.put((byte) (0x80 | codePoint >> 12 & 0x3f));
+		buffer.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+		buffer.put((byte) (0x80 | codePoint & 0x3f));
+	}
+
+	//writes value as Integer.toString would
+	ChannelWriter write(int value) throws IOException {
+		scratch.setLength(0);
+		scratch.append(value);
+		return writeScratch();
+	}
+
+	//writes value as Double.toString would
+	ChannelWriter write(double value) throws IOException {
+		scratch.setLength(0);
+		scratch.append(value); //formats straight into the builder, with no String in between
+		return writeScratch();
+	}
+
+	//writes the number in scratch, which is all ASCII
+	private ChannelWriter writeScratch() throws IOException {
+		var length = scratch.length();
+		ensureRoom(length);
+		for(var i=0; i<length; i++) {
+			buffer.put((byte) scratch.charAt(i));
+		}
+		return this;
+	}
+
+	//writes whatever is in the buffer to the channel
+	void flush() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+}
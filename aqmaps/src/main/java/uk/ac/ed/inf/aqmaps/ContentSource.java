@@ -0,0 +1,23 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+//where the maps, words and buildings data come from, given the non-constant part of their url
+//implementations must be safe to use from several threads at once
+public interface ContentSource {
+
+	//returns the content at the given non-constant part of the url
+	String webServerContent(String urlSegment) throws IOException, InterruptedException;
+
+	//returns the content of every url segment, in the same order as the segments
+	default List<String> webServerContents(List<String> urlSegments) throws IOException, InterruptedException {
+		var contents = new ArrayList<String>(urlSegments.size());
+		for(var urlSegment : urlSegments) {
+			contents.add(webServerContent(urlSegment));
+		}
+		return contents;
+	}
+
+}
@@ -0,0 +1,129 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mapbox.geojson.Point;
+
+//the air-quality data and sensor coordinates of one day, loaded once and held in index-aligned arrays
+//(index i of every array describes the i-th sensor in the day's air-quality-data.json)
+public final class DaySnapshot {
+	private final double[] lng;
+	private final double[] lat;
+	private final double[] battery;
+	private final String[] reading;
+	private final String[] location;
+
+	private DaySnapshot(double[] lng, double[] lat, double[] battery, String[] reading, String[] location) {
+		this.lng = lng;
+		this.lat = lat;
+		this.battery = battery;
+		this.reading = reading;
+		this.location = location;
+	}
+
+	//returns the snapshot of the date specified by day, month and year, fetching the air-quality data and each sensor's coordinates once
+	//from the given content source, with the sensors' coordinates resolved by locations
+	public static DaySnapshot load(ContentSource source, SensorLocation locations, String year, String month, String day) throws IOException, InterruptedException {
+		var detailsList = SensorDetails.getSensors(source, year, month, day);
+		var numOfSensors = detailsList.size();
+		var lng = new double[numOfSensors];
+		var lat = new double[numOfSensors];
+		var battery = new double[numOfSensors];
+		var reading = new String[numOfSensors];
+		var location = new String[numOfSensors];
+		var wordsList = new ArrayList<List<String>>(numOfSensors);
+		for(var i=0; i<numOfSensors; i++) {
+			wordsList.add(SensorDetails.getSensorWords(detailsList.get(i)));
+		}
+		var coordsList = locations.getCoordsList(wordsList);
+		for(var i=0; i<numOfSensors; i++) {
+			var details = detailsList.get(i);
+			var coords = coordsList.get(i);
+			lng[i] = coords.lng;
+			lat[i] = coords.lat;
+			battery[i] = SensorDetails.battery(details);
+			reading[i] = SensorDetails.reading(details);
+			location[i] = SensorDetails.location(details);
+		}
+		return new DaySnapshot(lng, lat, battery, reading, location);
+	}
+
+	//returns the snapshot of only the sensors at the given indices of this one, in the order given,
+	//such that sensor i of the new snapshot is sensor indices[i] of this one
+	public DaySnapshot subset(int[] indices) {
+		var numOfSensors = indices.length;
+		var subLng = new double[numOfSensors];
+		var subLat = new double[numOfSensors];
+		var subBattery = new double[numOfSensors];
+		var subReading = new String[numOfSensors];
+		var subLocation = new String[numOfSensors];
+		for(var i=0; i<numOfSensors; i++) {
+			var j = indices[i];
+			subLng[i] = lng[j];
+			subLat[i] = lat[j];
+			subBattery[i] = battery[j];
+			subReading[i] = reading[j];
+			subLocation[i] = location[j];
+		}
+		return new DaySnapshot(subLng, subLat, subBattery, subReading, subLocation);
+	}
+
+	//returns the number of sensors to be visited on this day
+	public int size() {
+		return lng.length;
+	}
+
+	//returns the longitude of the i-th sensor
+	public double lng(int i) {
+		return lng[i];
+	}
+
+	//returns the latitude of the i-th sensor
+	public double lat(int i) {
+		return lat[i];
+	}
+
+	//returns the battery value of the i-th sensor
+	public double battery(int i) {
+		return battery[i];
+	}
+
+	//returns the reading of the i-th sensor
+	public String reading(int i) {
+		return reading[i];
+	}
+
+	//returns the what3words location of the i-th sensor
+	public String location(int i) {
+		return location[i];
+	}
+
+	//returns the position of the i-th sensor as a Point
+	public Point point(int i) {
+		return Point.fromLngLat(lng[i], lat[i]);
+	}
+
+	//returns a new list of the positions of all the sensors, in snapshot order
+	public List<Point> points() {
+		var points = new ArrayList<Point>(lng.length);
+		for(var i=0; i<lng.length; i++) {
+			points.add(point(i));
+		}
+		return points;
+	}
+
+	//returns the index of the sensor at the given position, or -1 if no sensor is there
+	public int indexOf(Point sensorPos) {
+		var sensorLng = sensorPos.longitude();
+		var sensorLat = sensorPos.latitude();
+		for(var i=0; i<lng.length; i++) {
+			if(lng[i] == sensorLng && lat[i] == sensorLat) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
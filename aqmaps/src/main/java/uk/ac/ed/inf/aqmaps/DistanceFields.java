@@ -0,0 +1,443 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//the fewest moves from anywhere in the confinement area to within range of a goal, such as a sensor or the start,
+//worked out once per goal and kept, such that the cost of a leg is a single lookup rather than a search
+//the area is cut into square cells a fraction of a move across; a move from a cell goes from its centre, in one of the 36 directions,
+//to the cell its end falls in, and is legal if it stays in the area and crosses no building, as the drone's moves must
+//a goal's field is the number of such moves from each cell to the goal, found by a breadth-first search back from the cells
+//within range of it, one byte per cell; the lattice only approximates the drone's positions, so a field is an estimate,
+//a move or so either way on a long leg, as the costs of LegCostMatrix already are
+//the buildings and sensors are the same every day, so the fields of sensors are kept in a file named after the hash of the buildings
+//and reused from day to day; the file is a 32 byte header (magic, version, cols, rows, geometry hash, field count) followed by one record per field of
+//[goal lng (8 bytes)][goal lat (8 bytes)][goal range (8 bytes)][cols*rows bytes of moves], appended as fields are worked out
+//only the goals of the records are read when the file is opened; a field is read from the file the first time it is asked for,
+//such that a run holds in memory the fields of the goals it plans for rather than every field ever kept
+//any other goal, such as a start position, may be anywhere and is seldom asked for again, so its field is held in memory only,
+//and only for the last few such goals, rather than growing the file by a field for every start ever planned from
+//the legal moves of the lattice are kept beside the fields, in a file of a 24 byte header (magic, version, cols, rows, geometry hash)
+//followed by cols*rows longs, such that a new sensor costs only its search rather than testing every move against the buildings again
+public final class DistanceFields {
+	private final static int magic = 0x41514446; //"AQDF"
+	private final static int version = 1;
+	private final static int headerSize = 32;
+	private final static int countOffset = 24;
+	private final static int goalSize = 24;
+	private final static int unreached = 0xff;
+	private final static int movesMagic = 0x41514c4d; //"AQLM"
+	private final static int movesHeaderSize = 24;
+	private final static int maxOtherFields = 32; //the fields of goals other than sensors held at once, each cols*rows bytes
+	private final static double cellSize = DroneConstraints.r/16;
+	private final static int cols = (int) Math.ceil((DroneConstraints.lonUB - DroneConstraints.lonLB)/cellSize);
+	private final static int rows = (int) Math.ceil((DroneConstraints.latUB - DroneConstraints.latLB)/cellSize);
+	//the move in each direction as a number of columns and rows, and as a number of cells
+	private final static int[] colStep = new int[FlightMath.numDirs];
+	private final static int[] rowStep = new int[FlightMath.numDirs];
+	private final static int[] cellStep = new int[FlightMath.numDirs];
+	static {
+		for(var d=0; d<FlightMath.numDirs; d++) {
+			colStep[d] = (int) Math.round(FlightMath.stepLng(d)/cellSize);
+			rowStep[d] = (int) Math.round(FlightMath.stepLat(d)/cellSize);
+			cellStep[d] = colStep[d] + rowStep[d]*cols;
+		}
+	}
+
+	//directory of the cache files, overridable with -Daqmaps.distanceFieldDir (an empty value turns the fields off)
+	public final static String defaultDir = System.getProperty("aqmaps.distanceFieldDir", ".");
+
+	private final NoFlyIndex noFlyIndex;
+	private final Path file; //null if the fields are kept in memory only
+	private final Path movesFile; //the file of the legal moves, null if they are kept in memory only
+	private final ConcurrentHashMap<String, byte[]> fields = new ConcurrentHashMap<String, byte[]>(); //the fields of sensors held in memory
+	//the fields of the goals other than sensors most recently asked for, in the order they were asked for
+	private final Map<String, byte[]> otherFields = Collections.synchronizedMap(new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+			return size() > maxOtherFields;
+		}
+	});
+	private final ConcurrentHashMap<String, Long> stored = new ConcurrentHashMap<String, Long>(); //the offset of each record in the file
+	private long recordsIndexed = 0; //the records of the file whose goals have been read
+	private long[] legalMoves; //bit d of cell c is set if the move in direction d from c is legal, worked out when first needed
+
+	private DistanceFields(NoFlyIndex noFlyIndex, Path file) {
+		this.noFlyIndex = noFlyIndex;
+		this.file = file;
+		this.movesFile = file == null ? null : file.resolveSibling("distance-moves-" + Long.toHexString(noFlyIndex.geometryHash()) + ".cache");
+	}
+
+	//returns the fields of the buildings of noFlyIndex kept in memory only
+	public static DistanceFields inMemory(NoFlyIndex noFlyIndex) {
+		return new DistanceFields(noFlyIndex, null);
+	}
+
+	//returns the fields of the buildings of noFlyIndex, reading those already worked out from their file in dir
+	//and appending those worked out from now on; the file is created if there is none
+	public static DistanceFields open(NoFlyIndex noFlyIndex, Path dir) throws IOException {
+		var fields = new DistanceFields(noFlyIndex, dir.resolve("distance-fields-" + Long.toHexString(noFlyIndex.geometryHash()) + ".cache"));
+		fields.openFile();
+		return fields;
+	}
+
+	//returns the fields of the buildings of noFlyIndex in the default directory, kept in memory only if the file can't be used,
+	//or null if the fields are turned off
+	public static DistanceFields forIndex(NoFlyIndex noFlyIndex) {
+		if(defaultDir.isEmpty()) {
+			return null;
+		}
+		try {
+			return open(noFlyIndex, Paths.get(defaultDir));
+		} catch (IOException e) {
+			System.err.println("Warning: distance field cache unavailable (" + e.getMessage() + "), keeping the fields in memory only.");
+			return inMemory(noFlyIndex);
+		}
+	}
+
+	//returns the file backing these fields, or null if they are kept in memory only
+	public Path file() {
+		return file;
+	}
+
+	//returns the file backing the legal moves, or null if they are kept in memory only
+	public Path movesFile() {
+		return movesFile;
+	}
+
+	//returns the number of sensors whose fields are held, in memory or in the file as far as it has been read
+	public int size() {
+		var size = stored.size();
+		for(var key : fields.keySet()) {
+			if(stored.containsKey(key) == false) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	//returns the number of fields held in memory
+	public int loaded() {
+		return fields.size() + otherFields.size();
+	}
+
+	//returns the key of the field of the goal
+	private static String key(double goalLng, double goalLat, double goalRange) {
+		return goalLng + "," + goalLat + "," + goalRange;
+	}
+
+	//returns the index of the cell holding (lng, lat), or -1 if it is outside the lattice
+	private static int cellOf(double lng, double lat) {
+		var col = (int) Math.floor((lng - DroneConstraints.lonLB)/cellSize);
+		var row = (int) Math.floor((lat - DroneConstraints.latLB)/cellSize);
+		if(col < 0 || col >= cols || row < 0 || row >= rows) {
+			return -1;
+		}
+		return col + row*cols;
+	}
+
+	private static double centreLng(int cell) {
+		return DroneConstraints.lonLB + (cell%cols + 0.5)*cellSize;
+	}
+
+	private static double centreLat(int cell) {
+		return DroneConstraints.latLB + (cell/cols + 0.5)*cellSize;
+	}
+
+	//returns the legal moves from every cell, read from their file the first time they are needed,
+	//or else worked out and written to it
+	private synchronized long[] legalMoves() {
+		if(legalMoves == null) {
+			legalMoves = readLegalMoves();
+			if(legalMoves == null) {
+				legalMoves = buildLegalMoves();
+				writeLegalMoves(legalMoves);
+			}
+		}
+		return legalMoves;
+	}
+
+	//returns the legal moves from every cell, testing each move against the buildings
+	private long[] buildLegalMoves() {
+		var legal = new long[cols*rows];
+		for(var c=0; c<legal.length; c++) {
+			var lng = centreLng(c);
+			var lat = centreLat(c);
+			if(noFlyIndex.insideAnyBuilding(lng, lat)) {
+				continue;
+			}
+			var col = c%cols;
+			var row = c/cols;
+			for(var d=0; d<FlightMath.numDirs; d++) {
+				var nextCol = col + colStep[d];
+				var nextRow = row + rowStep[d];
+				if(nextCol < 0 || nextCol >= cols || nextRow < 0 || nextRow >= rows) {
+					continue;
+				}
+				var nextLng = lng + FlightMath.stepLng(d);
+				var nextLat = lat + FlightMath.stepLat(d);
+				if(DroneConstraints.withinArea(nextLng, nextLat) && noFlyIndex.noIntersectionsUncounted(lng, lat, nextLng, nextLat)) {
+					legal[c] |= 1L << d;
+				}
+			}
+		}
+		return legal;
+	}
+
+	//returns the field of the goal worked out by a breadth-first search back from the cells whose centres are within goalRange of it,
+	//up to the moves of a whole flight
+	private byte[] search(double goalLng, double goalLat, double goalRange) {
+		var legal = legalMoves();
+		var field = new byte[cols*rows];
+		Arrays.fill(field, (byte) unreached);
+		var queue = new int[cols*rows];
+		var head = 0;
+		var tail = 0;
+		for(var c=0; c<field.length; c++) {
+			if(legal[c] != 0 && FlightMath.distSq(goalLng, goalLat, centreLng(c), centreLat(c)) < goalRange*goalRange) {
+				field[c] = 0;
+				queue[tail++] = c;
+			}
+		}
+		var maxMoves = DroneMovement.getMaxMoves();
+		while(head < tail) {
+			var c = queue[head++];
+			var moves = (field[c] & 0xff) + 1;
+			if(moves > maxMoves) {
+				continue;
+			}
+			var col = c%cols;
+			var row = c/cols;
+			for(var d=0; d<FlightMath.numDirs; d++) {
+				//the cell from which the move in direction d ends in c
+				var fromCol = col - colStep[d];
+				var fromRow = row - rowStep[d];
+				if(fromCol < 0 || fromCol >= cols || fromRow < 0 || fromRow >= rows) {
+					continue;
+				}
+				var from = c - cellStep[d];
+				if((field[from] & 0xff) == unreached && (legal[from] & 1L << d) != 0) {
+					field[from] = (byte) moves;
+					queue[tail++] = from;
+				}
+			}
+		}
+		return field;
+	}
+
+	//returns the field of the goal, reading it from the file if it is kept there, or else working it out and keeping it
+	//a goal within the connect range of its cells is a sensor; any other goal's field is held in memory among the last few only
+	private byte[] field(double goalLng, double goalLat, double goalRange) {
+		var key = key(goalLng, goalLat, goalRange);
+		if(goalRange != DroneMovement.getConnectRange()) {
+			var field = otherFields.get(key);
+			if(field == null) {
+				field = search(goalLng, goalLat, goalRange);
+				otherFields.put(key, field);
+			}
+			return field;
+		}
+		var field = fields.get(key);
+		if(field == null) { //read or worked out outside the map, such that other fields can be looked up meanwhile; a field got twice is the same
+			field = readStored(key);
+			if(field != null) {
+				fields.putIfAbsent(key, field);
+			}
+			else {
+				field = search(goalLng, goalLat, goalRange);
+				if(fields.putIfAbsent(key, field) == null) {
+					append(goalLng, goalLat, goalRange, field);
+				}
+			}
+		}
+		return field;
+	}
+
+	//returns the estimated fewest moves from (fromLng, fromLat) to within goalRange of (goalLng, goalLat),
+	//or -1 if the lattice has no way there within a whole flight
+	public int moves(double fromLng, double fromLat, double goalLng, double goalLat, double goalRange) {
+		if(FlightMath.distSq(fromLng, fromLat, goalLng, goalLat) < goalRange*goalRange) {
+			return 0;
+		}
+		var cell = cellOf(fromLng, fromLat);
+		if(cell == -1) {
+			return -1;
+		}
+		var moves = field(goalLng, goalLat, goalRange)[cell] & 0xff;
+		return moves == unreached ? -1 : Math.max(1, moves);
+	}
+
+	//checks the header of the file, writing it first if the file is new, and reads the goals of the records in it
+	private void openFile() throws IOException {
+		try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			var lock = channel.lock();
+			try {
+				var header = ByteBuffer.allocate(headerSize);
+				if(channel.size() < headerSize) {
+					header.putInt(magic).putInt(version).putInt(cols).putInt(rows).putLong(noFlyIndex.geometryHash()).putLong(0).flip();
+					writeFully(channel, header, 0);
+					channel.force(false);
+					return;
+				}
+				readFully(channel, header, 0);
+				header.flip();
+				if(header.getInt() != magic || header.getInt() != version || header.getInt() != cols || header.getInt() != rows
+						|| header.getLong() != noFlyIndex.geometryHash()) {
+					throw new IOException(file + " is not a distance field cache of these buildings");
+				}
+			} finally {
+				lock.release();
+			}
+		}
+		indexRecords();
+	}
+
+	//reads the goals of the records appended to the file (by this or another process) since it was last read
+	//the field count is written after the field, so every record counted is whole and no lock is needed
+	private synchronized void indexRecords() throws IOException {
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			var countBuffer = ByteBuffer.allocate(8);
+			readFully(channel, countBuffer, countOffset);
+			var count = countBuffer.flip().getLong();
+			var goal = ByteBuffer.allocate(goalSize);
+			for(var i=recordsIndexed; i<count; i++) {
+				var offset = headerSize + i*(goalSize + cols*rows);
+				goal.clear();
+				readFully(channel, goal, offset);
+				goal.flip();
+				stored.putIfAbsent(key(goal.getDouble(), goal.getDouble(), goal.getDouble()), offset);
+			}
+			recordsIndexed = count;
+		}
+	}
+
+	//returns the field of the goal with the given key read from the file, or null if the file has none or can't be read
+	private byte[] readStored(String key) {
+		if(file == null) {
+			return null;
+		}
+		try {
+			var offset = stored.get(key);
+			if(offset == null) { //another process may have kept it since the file was last read
+				indexRecords();
+				offset = stored.get(key);
+				if(offset == null) {
+					return null;
+				}
+			}
+			try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				var field = ByteBuffer.allocate(cols*rows);
+				readFully(channel, field, offset + goalSize);
+				return field.array();
+			}
+		} catch (IOException e) {
+			System.err.println("Warning: unable to read a distance field from " + file + " (" + e.getMessage() + "), working it out again.");
+			return null;
+		}
+	}
+
+	//returns the legal moves read from their file, or null if there is none, or it is of other buildings or can't be read
+	private long[] readLegalMoves() {
+		if(movesFile == null || Files.exists(movesFile) == false) {
+			return null;
+		}
+		try (var channel = FileChannel.open(movesFile, StandardOpenOption.READ)) {
+			var header = ByteBuffer.allocate(movesHeaderSize);
+			readFully(channel, header, 0);
+			header.flip();
+			if(header.getInt() != movesMagic || header.getInt() != version || header.getInt() != cols || header.getInt() != rows
+					|| header.getLong() != noFlyIndex.geometryHash()) {
+				System.err.println("Warning: " + movesFile + " is not a legal move cache of these buildings, working the moves out again.");
+				return null;
+			}
+			var table = ByteBuffer.allocate(cols*rows*8);
+			readFully(channel, table, movesHeaderSize);
+			var legal = new long[cols*rows];
+			table.flip().asLongBuffer().get(legal);
+			return legal;
+		} catch (IOException e) {
+			System.err.println("Warning: unable to read the legal moves from " + movesFile + " (" + e.getMessage() + "), working them out again.");
+			return null;
+		}
+	}
+
+	//writes the legal moves to their file, unless they are kept in memory only
+	//they are written to a file of their own and moved into place, such that another process never reads a partly written table
+	private void writeLegalMoves(long[] legal) {
+		if(movesFile == null) {
+			return;
+		}
+		var temp = movesFile.resolveSibling(movesFile.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+		try {
+			try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				var buffer = ByteBuffer.allocate(movesHeaderSize + legal.length*8);
+				buffer.putInt(movesMagic).putInt(version).putInt(cols).putInt(rows).putLong(noFlyIndex.geometryHash());
+				buffer.asLongBuffer().put(legal);
+				buffer.position(buffer.capacity()).flip();
+				writeFully(channel, buffer, 0);
+				channel.force(false);
+			}
+			Files.move(temp, movesFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Warning: unable to keep the legal moves in " + movesFile + " (" + e.getMessage() + ").");
+			temp.toFile().delete();
+		}
+	}
+
+	//reads from the channel at position until buffer is full, as a single read may read less
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		var start = buffer.position();
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, position + buffer.position() - start) < 0) {
+				throw new IOException("the cache file ends inside a record");
+			}
+		}
+	}
+
+	//writes all of buffer to the channel at position, as a single write may write less
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		var start = buffer.position();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position() - start);
+		}
+	}
+
+	//appends the field of the goal to the file, unless the fields are kept in memory only
+	//the field count is written after the field, such that a reader never sees a partly written field
+	private synchronized void append(double goalLng, double goalLat, double goalRange, byte[] field) {
+		if(file == null) {
+			return;
+		}
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			var lock = channel.lock(); //other processes may be appending to the same file
+			try {
+				var countBuffer = ByteBuffer.allocate(8);
+				readFully(channel, countBuffer, countOffset);
+				var count = countBuffer.flip().getLong();
+				var record = ByteBuffer.allocate(goalSize + field.length);
+				record.putDouble(goalLng).putDouble(goalLat).putDouble(goalRange).put(field).flip();
+				writeFully(channel, record, headerSize + count*record.capacity());
+				countBuffer.clear();
+				countBuffer.putLong(count + 1).flip();
+				writeFully(channel, countBuffer, countOffset);
+				channel.force(false);
+			} finally {
+				lock.release();
+			}
+		} catch (IOException e) {
+			System.err.println("Warning: unable to keep a distance field in " + file + " (" + e.getMessage() + ").");
+		}
+	}
+
+}
@@ -1,26 +1,39 @@
 package uk.ac.ed.inf.aqmaps;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.mapbox.geojson.Point;
 
-public class DroneConstraints extends NoFlyZones{
+public class DroneConstraints {
 	public final static double r = 0.0003; //distance travelled by drone for each move
-	private final static double latUB = 55.946233; //latitude upper bound
-	private final static double latLB = 55.942617;
-	private final static double lonUB = -3.184319;
-	private final static double lonLB = -3.192473; //longitude lower bound
+	final static double latUB = 55.946233; //latitude upper bound
+	final static double latLB = 55.942617;
+	final static double lonUB = -3.184319;
+	final static double lonLB = -3.192473; //longitude lower bound
 
 	
 	//returns True if drone is within confinement area
-	private static boolean withinArea(Point dronePos) {
-		var droneLat = dronePos.latitude();
-		var droneLon = dronePos.longitude();
+	public static boolean withinArea(Point dronePos) {
+		return withinArea(dronePos.longitude(), dronePos.latitude());
+	}
+	
+	//as above, given the longitude and latitude of the drone
+	public static boolean withinArea(double droneLon, double droneLat) {
 		return droneLat<latUB && droneLat>latLB && droneLon<lonUB && droneLon>lonLB;
 	}
 	
+	//returns the centres of the cells of a grid of cols by rows cells laid over the confinement area, row by row from the south-west
+	public static List<Point> areaGrid(int cols, int rows) {
+		var grid = new ArrayList<Point>(cols*rows);
+		for(var row=0; row<rows; row++) {
+			for(var col=0; col<cols; col++) {
+				grid.add(Point.fromLngLat(lonLB + (col+0.5)*(lonUB-lonLB)/cols, latLB + (row+0.5)*(latUB-latLB)/rows));
+			}
+		}
+		return grid;
+	}
+	
 	//returns the centre of the confinement area
 	private static Point areaCentre() {
 		var centreLon = (lonLB + lonUB)/2;
@@ -45,27 +58,20 @@ public class DroneConstraints extends NoFlyZones{
 	
 	//returns the new position of the drone, given the current position of the drone and its direction of travel 
 	public static Point nextPos(int dirInDeg, Point currPos) {
-		var dirInRad = Math.toRadians(dirInDeg); //have to convert to radians such that it is compatible with Math methods
-		
-		var currLat = currPos.latitude();
-		var currLon = currPos.longitude();
-		
-		var newLat = currLat + r*Math.sin(dirInRad);
-		var newLon = currLon + r*Math.cos(dirInRad);
-		var newPos = Point.fromLngLat(newLon, newLat);
-		
-		return newPos; 
+		var newLat = FlightMath.nextLat(currPos.latitude(), dirInDeg); //the 36 directions come from precomputed tables
+		var newLon = FlightMath.nextLng(currPos.longitude(), dirInDeg);
+		return Point.fromLngLat(newLon, newLat);
 	}
 	
 	//returns a direction for the drone to move in, given the position of the drone and the desired position it wants to move towards 
 	//the desired position of the drone is either in range of: the closest sensor or its initial position (such that we have a closed loop path)
 	public static int computeDir(Point dronePos, Point desPos) {
-		var droneLat = dronePos.latitude();
-		var droneLon = dronePos.longitude();
-		var desLat = desPos.latitude();
-		var desLon = desPos.longitude();
-		var angleInRad = Math.atan2(droneLat-desLat, droneLon-desLon) + Math.PI;
-		var angle = Math.toDegrees(angleInRad);
+		return computeDir(dronePos.longitude(), dronePos.latitude(), desPos.longitude(), desPos.latitude());
+	}
+	
+	//as above, given the longitudes and latitudes of the two positions
+	public static int computeDir(double droneLon, double droneLat, double desLon, double desLat) {
+		var angle = FlightMath.angle(droneLon, droneLat, desLon, desLat);
 		if(multipleOfTen(angle)==false && withinDirRange(angle)== true) {
 			angle= angle - (angle%10); //equivalent to rounding down the angle to the nearest 10
 		}
@@ -145,16 +151,11 @@ public class DroneConstraints extends NoFlyZones{
 	
 	//calculates the Euclidean distance between two points
 	public static double euclidDist(Point p1, Point p2) {
-		var p1Lat = p1.latitude();
-		var p1Lon = p1.longitude();
-		var p2Lat = p2.latitude();
-		var p2Lon = p2.longitude();
-		var dist = Math.sqrt( ((p1Lat-p2Lat)*(p1Lat-p2Lat)) + ((p1Lon-p2Lon)*(p1Lon-p2Lon)) );
-		return dist;
+		return FlightMath.dist(p1.longitude(), p1.latitude(), p2.longitude(), p2.latitude());
 	}
 	
 	//returns the next position of the drone, such that it doesn't fly over one side of a building (defined by coord1 and coord2)
-	private static Point chooseNextPos(Point currPos, Point droneNextDes, Point coord1, Point coord2, double buildingSideGrad, Point buildingCentre,  List<List<List<Point>>> noFlyZonesCoords, Point previous1, Point previous2) throws IOException, InterruptedException {
+	private static Point chooseNextPos(Point currPos, Point droneNextDes, Point coord1, Point coord2, double buildingSideGrad, Point buildingCentre, NoFlyIndex noFlyIndex, Point previous1, Point previous2) {
 		var possibleNextPos = possibleNextPos(currPos, coord1, coord2, buildingSideGrad, buildingCentre);
 		var nextPosTemp1 = possibleNextPos.get(0);
 		var nextPosTemp2 = possibleNextPos.get(1);
@@ -168,7 +169,7 @@ public class DroneConstraints extends NoFlyZones{
 		//in the case that both directions result in no intersection, 
 		//it chooses the one that minimises the distance between the drone's next position and desired position 
 		//and doesn't result in the drone going back and fourth continuously 
-		if(noIntersections(currPos, nextPosTemp1, noFlyZonesCoords)==true && noIntersections(currPos, nextPosTemp2, noFlyZonesCoords)==true) {
+		if(noFlyIndex.noIntersections(currPos, nextPosTemp1)==true && noFlyIndex.noIntersections(currPos, nextPosTemp2)==true) {
 			var repeatedMoveDir1 = false; //in the case that previous1 and previous2 are null
 			var repeatedMoveDir2 = false;
 			if(previous1!=null && previous2!=null) {
@@ -183,10 +184,10 @@ public class DroneConstraints extends NoFlyZones{
 				nextPos = nextPosTemp2;
 			}
 		}
-		else if(noIntersections(currPos, nextPosTemp1, noFlyZonesCoords)==true && noIntersections(currPos, nextPosTemp2, noFlyZonesCoords)==false) {
+		else if(noFlyIndex.noIntersections(currPos, nextPosTemp1)==true && noFlyIndex.noIntersections(currPos, nextPosTemp2)==false) {
 			nextPos = nextPosTemp1;
 		}
-		else if(noIntersections(currPos, nextPosTemp1, noFlyZonesCoords)==false && noIntersections(currPos, nextPosTemp2, noFlyZonesCoords)==true) { //
+		else if(noFlyIndex.noIntersections(currPos, nextPosTemp1)==false && noFlyIndex.noIntersections(currPos, nextPosTemp2)==true) { //
 			nextPos =  nextPosTemp2;
 		}
 		
@@ -195,12 +196,11 @@ public class DroneConstraints extends NoFlyZones{
 	}
 	
 	//returns new position of the drone such that it avoids the no fly zones
-	private static Point avoidNoFlyZones(Point droneCurr, Point droneNextDes, List<List<List<Point>>> noFlyZonesCoords, List<Point> dronePositions, String port) throws IOException, InterruptedException {
-		var intersectingLines = linesWhichIntersect(droneCurr, droneNextDes, noFlyZonesCoords);
-		var numCoords = intersectingLines.size();
+	private static Point avoidNoFlyZones(Point droneCurr, Point droneNextDes, NoFlyIndex noFlyIndex, List<Point> dronePositions) {
+		var intersectingEdges = noFlyIndex.intersectingEdges(droneCurr, droneNextDes);
+		var numEdges = intersectingEdges.length;
+		RunMetrics.shared().recordAvoid(numEdges);
 		
-		var droneGrad = getGradient(droneCurr, droneNextDes);
-		var droneYint = getYint(droneCurr, droneNextDes);
 		var droneNext = droneNextDes; //in the case that there are no intersections with any lines
 		
 		Point previous1 = null;
@@ -212,93 +212,34 @@ public class DroneConstraints extends NoFlyZones{
 		}
 		
 		//in the case that the drone intersects with one line
-		if(numCoords == 2) {
-			var coord1 = intersectingLines.get(0);
-			var coord2 = intersectingLines.get(1); 
-			var buildingInd = buildingIndex(coord1, port);
-			if(buildingInd != 100) { //index initialised as 100 in buildingIndex function- if coordinate not found in list, 100 is returned
-				var buildingCentre = buildingCentres(port).get(buildingInd);
-				var buildingSideGrad = getGradient(coord1, coord2);
-				droneNext = chooseNextPos(droneCurr, droneNextDes, coord1, coord2, buildingSideGrad, buildingCentre, noFlyZonesCoords, previous1, previous2);
-			}
-			
+		if(numEdges == 1) {
+			var edge = intersectingEdges[0];
+			var coord1 = noFlyIndex.edgeStart(edge);
+			var coord2 = noFlyIndex.edgeEnd(edge);
+			var buildingCentre = noFlyIndex.centre(noFlyIndex.building(edge));
+			var buildingSideGrad = NoFlyZones.getGradient(coord1, coord2);
+			droneNext = chooseNextPos(droneCurr, droneNextDes, coord1, coord2, buildingSideGrad, buildingCentre, noFlyIndex, previous1, previous2);
 		}
-		//in the case that the drone intersects with two lines
-		else if(numCoords == 4) {
-			var coord1 = intersectingLines.get(0);
-			var coord2 = intersectingLines.get(1);
-			var coord3 = intersectingLines.get(2);
-			var coord4 = intersectingLines.get(3);
-			
-			var buildingSide1Grad = getGradient(coord1, coord2);
-			var buildingSide1Yint = getYint(coord1, coord2);
-			var intersection1 = getIntersection(droneYint, buildingSide1Yint, droneGrad, buildingSide1Grad);
-			var dist1 = euclidDist(intersection1, droneCurr);
-			
-			var buildingSide2Grad = getGradient(coord3, coord4);
-			var buildingSide2Yint = getYint(coord3, coord4);
-			var intersection2 = getIntersection(droneYint, buildingSide2Yint, droneGrad, buildingSide2Grad);
-			var dist2 = euclidDist(intersection2, droneCurr);
-			
-			var buildingInd1 = buildingIndex(coord1, port); //in case the two lines which the drone intersects with are from 2 different buildings
-			var buildingInd2 = buildingIndex(coord3, port);
-			if(buildingInd1 !=100 && buildingInd2 !=100) { 
-				var buildingCentre1 = buildingCentres(port).get(buildingInd1);
-				var buildingCentre2 = buildingCentres(port).get(buildingInd2);
-				
-				if(dist1<dist2) { //to determine which side the drone path intersects with first
-					droneNext = chooseNextPos(droneCurr, droneNextDes, coord1, coord2, buildingSide1Grad, buildingCentre1, noFlyZonesCoords, previous1, previous2);
-				}
-				else {
-					droneNext = chooseNextPos(droneCurr, droneNextDes, coord3, coord4, buildingSide2Grad, buildingCentre2, noFlyZonesCoords, previous1, previous2);
-				}
-			}
-				
-		} 
-		//in the case that the drone intersects with three lines
-		else if(numCoords == 6) {
-			var coord1 = intersectingLines.get(0);
-			var coord2 = intersectingLines.get(1);
-			var coord3 = intersectingLines.get(2);
-			var coord4 = intersectingLines.get(3);
-			var coord5 = intersectingLines.get(4);
-			var coord6 = intersectingLines.get(5);
-			
-			var buildingSide1Grad = getGradient(coord1, coord2);
-			var buildingSide1Yint = getYint(coord1, coord2);
-			var intersection1 = getIntersection(droneYint, buildingSide1Yint, droneGrad, buildingSide1Grad);
-			var dist1 = euclidDist(intersection1, droneCurr);
-			
-			var buildingSide2Grad = getGradient(coord3, coord4);
-			var buildingSide2Yint = getYint(coord3, coord4);
-			var intersection2 = getIntersection(droneYint, buildingSide2Yint, droneGrad, buildingSide2Grad);
-			var dist2 = euclidDist(intersection2, droneCurr);
-			
-			var buildingSide3Grad = getGradient(coord5, coord6);
-			var buildingSide3Yint = getYint(coord5, coord6);
-			var intersection3 = getIntersection(droneYint, buildingSide3Yint, droneGrad, buildingSide3Grad);
-			var dist3 = euclidDist(intersection3, droneCurr);
-			
-			var minDist = Math.min(Math.min(dist1, dist2),dist3);
-			
-			var buildingInd1 = buildingIndex(coord1, port); //in case the three lines which the drone intersects with are from 3 different buildings
-			var buildingInd2 = buildingIndex(coord3, port);
-			var buildingInd3 = buildingIndex(coord5, port);
-			if(buildingInd1 !=100 && buildingInd2 != 100 && buildingInd3 != 100) {
-				var buildingCentre1 = buildingCentres(port).get(buildingInd1);
-				var buildingCentre2 = buildingCentres(port).get(buildingInd2);
-				var buildingCentre3 = buildingCentres(port).get(buildingInd3);
-								
-				if(minDist==dist1) {
-					droneNext = chooseNextPos(droneCurr, droneNextDes, coord1, coord2, buildingSide1Grad, buildingCentre1, noFlyZonesCoords, previous1, previous2);
-				}
-				else if(minDist==dist2) {
-					droneNext = chooseNextPos(droneCurr, droneNextDes, coord3, coord4, buildingSide2Grad, buildingCentre2, noFlyZonesCoords, previous1, previous2);
-				}
-				else {
-					droneNext = chooseNextPos(droneCurr, droneNextDes, coord5, coord6, buildingSide3Grad, buildingCentre3, noFlyZonesCoords, previous1, previous2);
+		//in the case that the drone intersects with several lines, it avoids the one its path intersects with first
+		//(the lines may be from different buildings)
+		else if(numEdges > 1) {
+			var first = 0; //to determine which line the drone path intersects with first
+			var firstParam = Double.POSITIVE_INFINITY; //how far along the drone's path that line is met
+			for(var i=0; i<numEdges; i++) {
+				var edge = intersectingEdges[i];
+				var param = SegmentGeometry.intersectionParam(droneCurr.longitude(), droneCurr.latitude(), droneNextDes.longitude(), droneNextDes.latitude(),
+						noFlyIndex.lng1(edge), noFlyIndex.lat1(edge), noFlyIndex.lng2(edge), noFlyIndex.lat2(edge));
+				if(param<firstParam) {
+					firstParam = param;
+					first = i;
 				}
 			}
+			var firstEdge = intersectingEdges[first];
+			var coord1 = noFlyIndex.edgeStart(firstEdge);
+			var coord2 = noFlyIndex.edgeEnd(firstEdge);
+			var buildingCentre = noFlyIndex.centre(noFlyIndex.building(firstEdge));
+			var buildingSideGrad = NoFlyZones.getGradient(coord1, coord2);
+			droneNext = chooseNextPos(droneCurr, droneNextDes, coord1, coord2, buildingSideGrad, buildingCentre, noFlyIndex, previous1, previous2);
 		}
 		
 		
@@ -307,22 +248,22 @@ public class DroneConstraints extends NoFlyZones{
 	
 	
 	//returns the new position of the drone, in the case that the desired next position (which avoids the no fly zones) results in the drone leaving the confined area 
-	private static Point avoidLeavingArea(Point droneCurr, Point droneNextDes, List<List<List<Point>>> noFlyZonesCoords, List<Point> dronePositions, String port) throws IOException, InterruptedException {
+	private static Point avoidLeavingArea(Point droneCurr, Point droneNextDes, NoFlyIndex noFlyIndex, List<Point> dronePositions) {
 		var droneNext = droneNextDes;
 		
 		//the drone moves towards the centre of the confined area, while avoiding the no fly zones
 		if(withinArea(droneNextDes)==false) {
 			var dir = computeDir(droneCurr, areaCentre());
 			droneNextDes = nextPos(dir, droneCurr);
-			droneNext = avoidNoFlyZones(droneCurr, droneNextDes, noFlyZonesCoords, dronePositions, port);
+			droneNext = avoidNoFlyZones(droneCurr, droneNextDes, noFlyIndex, dronePositions);
 		}
 		return droneNext;
 	}
 	
 	//returns the new position of the drone, which is legal
-	public static Point avoidIllegalMove(Point droneCurr, Point droneNextDes, List<List<List<Point>>> noFlyZonesCoords, List<Point> dronePositions, String port) throws IOException, InterruptedException {
-		var droneAvoidNoFly = avoidNoFlyZones(droneCurr, droneNextDes, noFlyZonesCoords, dronePositions, port);
-		var droneAvoidLeaving = avoidLeavingArea(droneCurr, droneAvoidNoFly, noFlyZonesCoords, dronePositions, port);
+	public static Point avoidIllegalMove(Point droneCurr, Point droneNextDes, NoFlyIndex noFlyIndex, List<Point> dronePositions) {
+		var droneAvoidNoFly = avoidNoFlyZones(droneCurr, droneNextDes, noFlyIndex, dronePositions);
+		var droneAvoidLeaving = avoidLeavingArea(droneCurr, droneAvoidNoFly, noFlyIndex, dronePositions);
 		var legalNextMove = droneAvoidLeaving;
 		return legalNextMove;
 	}
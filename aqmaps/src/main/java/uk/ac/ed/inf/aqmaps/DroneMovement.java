@@ -1,123 +1,206 @@
 package uk.ac.ed.inf.aqmaps;
 
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import com.mapbox.geojson.Point;
 
-public class DroneMovement extends DroneConstraints{
+//plans the flights of the drone around the no-fly zones it was given
+//a planner holds no state of its own flights, such that one planner can plan many flights at once
+public class DroneMovement {
 	private final static double connectRange = 0.0002; //drone can connect to sensor if it is within this range
 	private final static int maxMoves = 150;
-	private static int movesMade = 0;
+	
+	private final NoFlyIndex noFlyIndex;
+	private final LegPlanner legPlanner;
+	private final LatticeSearch latticeSearch;
+	private final DistanceFields distanceFields; //null if the moves of legs are always searched for
+	
+	//a planner which looks the moves of legs up in distanceFields, where they have a way, rather than searching for them
+	public DroneMovement(NoFlyIndex noFlyIndex, DistanceFields distanceFields) {
+		this.noFlyIndex = noFlyIndex;
+		this.legPlanner = new LegPlanner(noFlyIndex);
+		this.latticeSearch = new LatticeSearch(noFlyIndex);
+		this.distanceFields = distanceFields;
+	}
+	
+	public DroneMovement(NoFlyIndex noFlyIndex) {
+		this(noFlyIndex, null);
+	}
+	
+	//returns a planner which looks the moves of legs up in the distance fields kept for these no-fly zones, unless those are turned off
+	public static DroneMovement withDistanceFields(NoFlyIndex noFlyIndex) {
+		return new DroneMovement(noFlyIndex, DistanceFields.forIndex(noFlyIndex));
+	}
 	
 	//returns the maximum number of moves the drone can make
-	private static int getMaxMoves() {
+	public static int getMaxMoves() {
 		return maxMoves;
 	}
 	
-	//increases the number of moves the drone has made by 1
-	private static void incrementMoves() {
-		movesMade ++;
+	//returns the distance within which the drone can connect to a sensor
+	public static double getConnectRange() {
+		return connectRange;
 	}
-
 	
-	//returns the number of moves the drone has made
-	private static int getMoves() {
-		return movesMade;
+	//returns the planner of the legs between sensors
+	public LegPlanner legPlanner() {
+		return legPlanner;
 	}
 	
-	//returns True if drone is within range to connect to sensor
-	private static boolean withinRange(Point dronePos, Point sensorPos) {
-		var dist = euclidDist(dronePos, sensorPos);
-		return dist<connectRange;
+	//returns True if the drone at (droneLng, droneLat) is within range to connect to the sensor at (sensorLng, sensorLat)
+	static boolean withinRange(double droneLng, double droneLat, double sensorLng, double sensorLat) {
+		return FlightMath.distSq(droneLng, droneLat, sensorLng, sensorLat) < connectRange*connectRange;
 	}
 	
-	//returns True if current drone position is close to initial drone position
-	private static boolean isClosedLoop(Point initPos, Point currPos) {
-		var dist = euclidDist(initPos, currPos);
-		return dist<r;
+	//returns True if the current drone position is close to (homeLng, homeLat), where the flight ends
+	private static boolean isClosedLoop(FlightState flight, double homeLng, double homeLat) {
+		return FlightMath.distSq(homeLng, homeLat, flight.lng(), flight.lat()) < DroneConstraints.r*DroneConstraints.r;
 	}
 	
-	//returns the closest sensor to the drone
-	private static Point closestSensor(Point dronePos, List<Point> sensors) throws IOException, InterruptedException {
-		var numOfCoords = sensors.size();
-		var closestSensor = sensors.get(0);
-		var smallestDist = euclidDist(dronePos, closestSensor);
-		for(var i=1; i<numOfCoords; i++) {
-			var sensorPos = sensors.get(i);
-			var dist = euclidDist(dronePos, sensorPos);
-			if(dist<smallestDist) {
-				smallestDist = dist;
-				closestSensor = sensorPos;
+	//returns the index of the sensor not yet visited which is closest to (droneLng, droneLat), or -1 if all have been visited
+	private static int closestSensor(double droneLng, double droneLat, DaySnapshot snapshot, boolean[] visited) {
+		var closestSensor = -1;
+		var smallestDistSq = Double.POSITIVE_INFINITY;
+		for(var i=0; i<visited.length; i++) {
+			if(visited[i]) {
+				continue;
+			}
+			var distSq = FlightMath.distSq(droneLng, droneLat, snapshot.lng(i), snapshot.lat(i));
+			if(distSq<smallestDistSq) {
+				smallestDistSq = distSq;
+				closestSensor = i;
 			}
-			
 		}
 		return closestSensor;
 	}
 	
-	//returns a list of two lists, where the first list contains all of the drone's positions and the second contains all the sensors visited, during its flight
-	public static List<List<Point>> dronePath(String day, String month, String year, String latStr, String lonStr, String port) throws IOException, InterruptedException{
-		var lat = Double.parseDouble(latStr);
-		var lon = Double.parseDouble(lonStr);
-		var initPos = Point.fromLngLat(lon, lat);
-		var currPos = initPos;
-		var dronePositions = new ArrayList<Point>();
-		dronePositions.add(currPos);
-		var sensorsVisited = new ArrayList<Point>();
-		var droneFlight = new ArrayList<List<Point>>();
-		var allSensors = getSensorsCoords(port, year, month, day);
-		var noFlyCoordPairs = noFlyZoneCoordPairs(port);
-		while(getMaxMoves() != getMoves() && allSensors.isEmpty()==false)  { 
-			var closestSensor = closestSensor(currPos, allSensors);	
-			var desDir = computeDir(currPos, closestSensor);
-			var desNextPos = nextPos(desDir, currPos);
-			currPos = avoidIllegalMove(currPos, desNextPos, noFlyCoordPairs, dronePositions, port);
-			incrementMoves();
-			dronePositions.add(currPos);
-			closestSensor = closestSensor(currPos, allSensors);
-			if(withinRange(currPos, closestSensor)==true) {
-				sensorsVisited.add(closestSensor);
-				allSensors.remove(closestSensor);
+	//returns the fewest legal moves, found by searching the lattice of moves, which take the drone from its current position
+	//to within goalRange of (desLng, desLat), as the longitude, latitude and direction after each move in turn (three values per move)
+	//if the search finds none, this is the single next move along the shortest way found by the leg planner, or failing that,
+	//the single move straight for the goal, deflected off any building in its path
+	private double[] legalMovesTowards(FlightState flight, double desLng, double desLat, double goalRange) {
+		var movesLeft = flight.maxMoves() - flight.movesMade();
+		var leg = latticeSearch.search(flight.lng(), flight.lat(), desLng, desLat, goalRange, movesLeft);
+		if(leg != null && leg.length > 0) {
+			return leg;
+		}
+		var move = legPlanner.nextMove(flight.lng(), flight.lat(), desLng, desLat, goalRange);
+		if(move != null) {
+			return move;
+		}
+		var currPos = flight.position();
+		var desNextPos = DroneConstraints.nextPos(DroneConstraints.computeDir(flight.lng(), flight.lat(), desLng, desLat), currPos);
+		var nextPos = DroneConstraints.avoidIllegalMove(currPos, desNextPos, noFlyIndex, flight.positions());
+		var dir = FlightMath.moveDir(flight.lng(), flight.lat(), nextPos.longitude(), nextPos.latitude());
+		return new double[] {nextPos.longitude(), nextPos.latitude(), dir};
+	}
+	
+	//returns the number of moves the drone makes from (fromLng, fromLat) to within goalRange of (toLng, toLat),
+	//or -1 if it can't get there within a whole flight
+	//with distance fields, this is the estimate of the field of (toLng, toLat), searched for only if the field has no way there
+	public int legMoves(double fromLng, double fromLat, double toLng, double toLat, double goalRange) {
+		if(distanceFields != null) {
+			var moves = distanceFields.moves(fromLng, fromLat, toLng, toLat, goalRange);
+			if(moves != -1) {
+				return moves;
 			}
-			else {
-				sensorsVisited.add(null);
+		}
+		var moves = latticeSearch.countMoves(fromLng, fromLat, toLng, toLat, goalRange, maxMoves);
+		if(moves != -1) {
+			return moves;
+		}
+		return legPlanner.countMoves(fromLng, fromLat, toLng, toLat, goalRange, maxMoves);
+	}
+	
+	//flies the leg to the sensor target in the fewest moves, until target is visited or the moves run out
+	//a sensor passed on the way to target is visited too, and marked as visited
+	private void flyLeg(FlightState flight, DaySnapshot snapshot, int target, boolean[] visited) {
+		var targetLng = snapshot.lng(target);
+		var targetLat = snapshot.lat(target);
+		while(flight.canMove() && visited[target] == false) {
+			var moves = legalMovesTowards(flight, targetLng, targetLat, connectRange);
+			for(var k=0; k<moves.length; k+=3) {
+				if(flight.canMove() == false || visited[target]) {
+					break;
+				}
+				var nextLng = moves[k];
+				var nextLat = moves[k+1];
+				var closestSensor = closestSensor(nextLng, nextLat, snapshot, visited);
+				if(closestSensor != -1 && withinRange(nextLng, nextLat, snapshot.lng(closestSensor), snapshot.lat(closestSensor))) {
+					flight.move(nextLng, nextLat, (int) moves[k+2], closestSensor);
+					visited[closestSensor] = true;
+				}
+				else {
+					flight.move(nextLng, nextLat, (int) moves[k+2], -1);
+				}
 			}
 		}
-		//once all sensors have been visited, and moves haven't reached 150, the drone flies towards initial position
-		while(getMaxMoves() != getMoves() && isClosedLoop(initPos, currPos)==false) { 
-			var desDir = computeDir(currPos, initPos);
-			var desNextPos = nextPos(desDir, currPos);
-			currPos = avoidIllegalMove(currPos, desNextPos, noFlyCoordPairs, dronePositions, port);
-			dronePositions.add(currPos);	
-			sensorsVisited.add(null);
+	}
+	
+	//flies back towards (homeLng, homeLat) until the loop is closed or the moves run out
+	private void flyBack(FlightState flight, double homeLng, double homeLat) {
+		while(flight.canMove() && isClosedLoop(flight, homeLng, homeLat)==false) { 
+			var moves = legalMovesTowards(flight, homeLng, homeLat, DroneConstraints.r);
+			for(var k=0; k<moves.length && flight.canMove(); k+=3) {
+				flight.move(moves[k], moves[k+1], (int) moves[k+2], -1);
+			}
+		}
+	}
+	
+	//returns the flight of the drone from initPos over the sensors of the snapshot, 
+	//flying each leg to the closest sensor not yet visited, until all have been visited, then flying back towards initPos
+	//every move, including those of the way back, counts towards the maximum number of moves
+	public FlightState fly(DaySnapshot snapshot, Point initPos) {
+		var flight = new FlightState(initPos, maxMoves);
+		var visited = new boolean[snapshot.size()];
+		for(var target = closestSensor(flight.lng(), flight.lat(), snapshot, visited); flight.canMove() && target != -1;
+				target = closestSensor(flight.lng(), flight.lat(), snapshot, visited)) {
+			flyLeg(flight, snapshot, target, visited);
 		}
-		droneFlight.add(dronePositions);
-		droneFlight.add(sensorsVisited);
-		return droneFlight;
-	}
-	
-	//returns a list of directions the drone chose to move in during its flight path, given the drone's positions
-	public static List<Integer> chosenDirections(List<Point> dronePositions) throws IOException, InterruptedException{
-		var numPositions = dronePositions.size();
-		var dirList = new ArrayList<Integer>();
-		for(var i=0; i<numPositions-1; i++) {
-			var dir = computeDir(dronePositions.get(i), dronePositions.get(i+1));
-			dirList.add(dir);
+		flyBack(flight, flight.initLng(), flight.initLat());
+		return flight;
+	}
+	
+	//as above, visiting the sensors in the order (of their indices in the snapshot) given by tour; sensors already visited are skipped
+	public FlightState fly(DaySnapshot snapshot, Point initPos, int[] tour) {
+		var flight = new FlightState(initPos, maxMoves);
+		var visited = new boolean[snapshot.size()];
+		for(var i=0; i<tour.length && flight.canMove(); i++) {
+			flyLeg(flight, snapshot, tour[i], visited);
 		}
-		return dirList;
-	}
-	
-	//returns a list of the sensors not visited by the drone
-	public static List<Point> sensorsNotVisited(String port, String day, String month, String year, List<Point> sensorsVisited) throws IOException, InterruptedException{
-		var sensors = getSensorsCoords(port, year, month, day);
-		var numSensorsVisit = sensorsVisited.size();
-		for(var i=0; i<numSensorsVisit; i++) {
-			var sensorVisited = sensorsVisited.get(i);
-			if(sensorVisited != null) {
-				sensors.remove(sensorVisited);
-			}	
+		flyBack(flight, flight.initLng(), flight.initLat());
+		return flight;
+	}
+	
+	//as above, visiting the sensors in the order found by the tour optimizer from the given seed
+	public FlightState fly(DaySnapshot snapshot, Point initPos, long seed) {
+		var costs = LegCostMatrix.compute(this, snapshot, initPos);
+		var tour = new TourOptimizer(costs, seed).optimize();
+		return fly(snapshot, initPos, tour);
+	}
+	
+	//returns the rest of a flight under way, from currentPos with movesLeft moves left, visiting the sensors of the snapshot
+	//in the order given by tour and then flying back to home, which is where the flight was launched from
+	public FlightState flyOn(DaySnapshot snapshot, Point currentPos, Point home, int movesLeft, int[] tour) {
+		var flight = new FlightState(currentPos, movesLeft);
+		var visited = new boolean[snapshot.size()];
+		for(var i=0; i<tour.length && flight.canMove(); i++) {
+			flyLeg(flight, snapshot, tour[i], visited);
 		}
-		return sensors;
+		flyBack(flight, home.longitude(), home.latitude());
+		return flight;
+	}
+	
+	//returns the plan of the flight of the drone from initPos over the sensors of the snapshot, flying each leg to the closest sensor not yet visited
+	public FlightPlan dronePath(DaySnapshot snapshot, Point initPos) {
+		var plan = FlightPlan.of(snapshot, fly(snapshot, initPos));
+		RunMetrics.shared().recordFlight(plan);
+		return plan;
+	}
+	
+	//as above, visiting the sensors in the order found by the tour optimizer from the given seed
+	public FlightPlan dronePath(DaySnapshot snapshot, Point initPos, long seed) {
+		var plan = FlightPlan.of(snapshot, fly(snapshot, initPos, seed));
+		RunMetrics.shared().recordFlight(plan);
+		return plan;
 	}
 	
 
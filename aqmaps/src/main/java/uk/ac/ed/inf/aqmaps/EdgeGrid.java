@@ -0,0 +1,125 @@
+package uk.ac.ed.inf.aqmaps;
+
+//uniform grid over the building sides, such that a line only has to be tested against the sides in the cells it crosses
+//cell c holds the sides cellEdges[cellStart[c]] to cellEdges[cellStart[c+1]-1], in increasing order
+public final class EdgeGrid {
+	private final static double pad = 1e-9; //cells are widened by this much so that rounding never loses a side lying on a cell border
+	private final static int maxCellsPerSide = 1024;
+
+	private final double minLng;
+	private final double minLat;
+	private final double cellWidth;
+	private final double cellHeight;
+	private final int cols;
+	private final int rows;
+	private final int[] cellStart;
+	private final int[] cellEdges;
+	private final int numEdges;
+
+	//builds the grid over the sides, side e joining (lng1[e], lat1[e]) to (lng2[e], lat2[e])
+	public EdgeGrid(double[] lng1, double[] lat1, double[] lng2, double[] lat2) {
+		numEdges = lng1.length;
+		var minLngAll = Double.POSITIVE_INFINITY;
+		var maxLngAll = Double.NEGATIVE_INFINITY;
+		var minLatAll = Double.POSITIVE_INFINITY;
+		var maxLatAll = Double.NEGATIVE_INFINITY;
+		for(var e=0; e<numEdges; e++) {
+			minLngAll = Math.min(minLngAll, Math.min(lng1[e], lng2[e]));
+			maxLngAll = Math.max(maxLngAll, Math.max(lng1[e], lng2[e]));
+			minLatAll = Math.min(minLatAll, Math.min(lat1[e], lat2[e]));
+			maxLatAll = Math.max(maxLatAll, Math.max(lat1[e], lat2[e]));
+		}
+		if(numEdges == 0) {
+			minLngAll = maxLngAll = minLatAll = maxLatAll = 0;
+		}
+		var width = Math.max(maxLngAll - minLngAll, pad);
+		var height = Math.max(maxLatAll - minLatAll, pad);
+		//about two cells per side along each axis keeps every cell's list short
+		var cellsAcross = (int) Math.min(maxCellsPerSide, Math.max(1, Math.ceil(2*Math.sqrt(numEdges))));
+		var cellSize = Math.max(width, height)/cellsAcross;
+		minLng = minLngAll;
+		minLat = minLatAll;
+		cols = (int) Math.min(maxCellsPerSide, Math.max(1, Math.ceil(width/cellSize)));
+		rows = (int) Math.min(maxCellsPerSide, Math.max(1, Math.ceil(height/cellSize)));
+		cellWidth = width/cols;
+		cellHeight = height/rows;
+
+		//first pass counts the sides in each cell, second pass fills them in
+		cellStart = new int[cols*rows + 1];
+		for(var e=0; e<numEdges; e++) {
+			forEachCell(lng1[e], lat1[e], lng2[e], lat2[e], (cell) -> cellStart[cell+1]++);
+		}
+		for(var c=0; c<cols*rows; c++) {
+			cellStart[c+1] += cellStart[c];
+		}
+		cellEdges = new int[cellStart[cols*rows]];
+		var filled = new int[cols*rows];
+		for(var e=0; e<numEdges; e++) {
+			var edge = e;
+			forEachCell(lng1[e], lat1[e], lng2[e], lat2[e], (cell) -> cellEdges[cellStart[cell] + filled[cell]++] = edge);
+		}
+	}
+
+	private interface CellVisitor{
+		void visit(int cell);
+	}
+
+	//returns the column holding the longitude, clamped to the grid
+	private int col(double lng) {
+		return (int) Math.max(0, Math.min(cols-1, Math.floor((lng - minLng)/cellWidth)));
+	}
+
+	//returns the row holding the latitude, clamped to the grid
+	private int row(double lat) {
+		return (int) Math.max(0, Math.min(rows-1, Math.floor((lat - minLat)/cellHeight)));
+	}
+
+	//visits every cell the line from (fromLng, fromLat) to (toLng, toLat) passes through (and possibly a few neighbours), each once
+	//for each column the line spans, the rows covered by the part of the line within that column are visited
+	private void forEachCell(double fromLng, double fromLat, double toLng, double toLat, CellVisitor visitor) {
+		var firstCol = col(Math.min(fromLng, toLng) - pad);
+		var lastCol = col(Math.max(fromLng, toLng) + pad);
+		var dLng = toLng - fromLng;
+		for(var c=firstCol; c<=lastCol; c++) {
+			var colMinLat = Math.min(fromLat, toLat);
+			var colMaxLat = Math.max(fromLat, toLat);
+			if(firstCol != lastCol && dLng != 0) { //clips the line to the longitudes of this column
+				var colLeft = Math.max(Math.min(fromLng, toLng), minLng + c*cellWidth - pad);
+				var colRight = Math.min(Math.max(fromLng, toLng), minLng + (c+1)*cellWidth + pad);
+				var latAtLeft = fromLat + (toLat - fromLat)*((colLeft - fromLng)/dLng);
+				var latAtRight = fromLat + (toLat - fromLat)*((colRight - fromLng)/dLng);
+				colMinLat = Math.max(colMinLat, Math.min(latAtLeft, latAtRight));
+				colMaxLat = Math.min(colMaxLat, Math.max(latAtLeft, latAtRight));
+			}
+			var firstRow = row(colMinLat - pad);
+			var lastRow = row(colMaxLat + pad);
+			for(var r=firstRow; r<=lastRow; r++) {
+				visitor.visit(r*cols + c);
+			}
+		}
+	}
+
+	//returns the sides in the cells which the line from (fromLng, fromLat) to (toLng, toLat) passes through, as a set of side indices
+	//(bit e of word e/64 is set if side e may be crossed), such that the caller can test them in increasing order
+	public long[] candidates(double fromLng, double fromLat, double toLng, double toLat) {
+		var found = new long[(numEdges + 63) >>> 6];
+		forEachCell(fromLng, fromLat, toLng, toLat, (cell) -> {
+			for(var i=cellStart[cell]; i<cellStart[cell+1]; i++) {
+				var e = cellEdges[i];
+				found[e >>> 6] |= 1L << e;
+			}
+		});
+		return found;
+	}
+
+	//returns the number of columns of the grid
+	public int cols() {
+		return cols;
+	}
+
+	//returns the number of rows of the grid
+	public int rows() {
+		return rows;
+	}
+
+}
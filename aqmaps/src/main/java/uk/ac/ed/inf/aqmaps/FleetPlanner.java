@@ -0,0 +1,107 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.mapbox.geojson.Point;
+
+//plans one day's flights for a fleet of drones launched from the same position, with the day's sensors shared out between them,
+//such that a day with more sensors than one drone can reach within its moves can still be covered
+//every drone has the full budget of moves of one drone, and the flights are planned at once, one per thread
+public class FleetPlanner {
+
+	//returns the indices of the sensors of snapshot split into at most k groups by sweeping a ray around initPos:
+	//the sensors are ordered by their angle from initPos, starting after the widest wedge holding no sensor,
+	//and cut into k runs of as near equal size as can be, such that each drone flies one slice of the area
+	public static int[][] sweepPartition(DaySnapshot snapshot, Point initPos, int k) {
+		var numSensors = snapshot.size();
+		var angles = new double[numSensors];
+		var order = new Integer[numSensors];
+		for(var i=0; i<numSensors; i++) {
+			angles[i] = FlightMath.angle(initPos.longitude(), initPos.latitude(), snapshot.lng(i), snapshot.lat(i));
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(angles[a], angles[b]));
+
+		//the sweep starts at the sensor after the widest gap, such that no slice straddles the empty side of the launch position
+		var start = 0;
+		var widestGap = -1.0;
+		for(var i=0; i<numSensors; i++) {
+			var previous = angles[order[(i + numSensors - 1) % numSensors]];
+			var gap = (angles[order[i]] - previous + 360) % 360;
+			if(gap > widestGap) {
+				widestGap = gap;
+				start = i;
+			}
+		}
+
+		var numGroups = Math.max(1, Math.min(k, numSensors));
+		var groups = new int[numGroups][];
+		var next = 0;
+		for(var g=0; g<numGroups; g++) {
+			var size = numSensors/numGroups + (g < numSensors%numGroups ? 1 : 0);
+			groups[g] = new int[size];
+			for(var i=0; i<size; i++) {
+				groups[g][i] = order[(start + next++) % numSensors];
+			}
+		}
+		return groups;
+	}
+
+	//plans the flight of each of at most k drones from initPos over its group of the sensors, on a pool of at most parallelism threads,
+	//with sensor orders drawn from the seed; the plans are in the order of the groups, each over the snapshot of its group only
+	public static List<FlightPlan> planFleet(DaySnapshot snapshot, Point initPos, int k, long seed, DroneMovement planner, int parallelism) throws InterruptedException {
+		var groups = sweepPartition(snapshot, initPos, k);
+		var pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, groups.length)));
+		try {
+			var futures = new ArrayList<Future<FlightPlan>>();
+			for(var group : groups) {
+				futures.add(pool.submit(() -> planner.dronePath(snapshot.subset(group), initPos, seed)));
+			}
+			var plans = new ArrayList<FlightPlan>();
+			for(var future : futures) {
+				try {
+					plans.add(future.get());
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return plans;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	//writes flightpath-dd-mm-yyyy-droneN.txt for each drone, numbered from 1, and one map of every drone's flight to readings-dd-mm-yyyy-fleet.geojson
+	public static void writeFiles(String day, String month, String year, List<FlightPlan> plans) throws IOException {
+		for(var d=0; d<plans.size(); d++) {
+			try (var out = ChannelWriter.create(Paths.get("flightpath-" + day + "-" + month + "-" + year + "-drone" + (d+1) + ".txt"))) {
+				WriteFlightpath.writeTxt(out, plans.get(d));
+			}
+		}
+		try (var out = ChannelWriter.create(Paths.get("readings-" + day + "-" + month + "-" + year + "-fleet.geojson"))) {
+			WriteReadings.writeGeojson(out, plans);
+		}
+	}
+
+	//plans the day's flights for drones drones from the given start position, prints the summary of each drone and writes the files
+	public static void run(String day, String month, String year, String lat, String lon, String seed, String port, int drones) throws IOException, InterruptedException {
+		var source = ReadWebServer.forPort(port);
+		var snapshot = DaySnapshot.load(source, new SensorLocation(source, WordsCoordCache.shared()), year, month, day);
+		var planner = DroneMovement.withDistanceFields(NoFlyIndex.load(source));
+		var initPos = Point.fromLngLat(Double.parseDouble(lon), Double.parseDouble(lat));
+		var plans = planFleet(snapshot, initPos, drones, Long.parseLong(seed), planner, Runtime.getRuntime().availableProcessors());
+		for(var d=0; d<plans.size(); d++) {
+			var plan = plans.get(d);
+			System.out.println("Drone " + (d+1) + ": " + plan.numMoves() + " moves, " + plan.numVisited() + "/" + plan.snapshot().size() + " sensors visited");
+		}
+		writeFiles(day, month, year, plans);
+	}
+
+}
@@ -0,0 +1,75 @@
+package uk.ac.ed.inf.aqmaps;
+
+//the arithmetic of the drone's moves on plain longitudes and latitudes, such that planning allocates no Points
+//the change of position of a move in each of the 36 directions is computed once, exactly as DroneConstraints.nextPos would
+public final class FlightMath {
+	public final static int numDirs = 36;
+	private final static double[] stepLng = new double[numDirs];
+	private final static double[] stepLat = new double[numDirs];
+	static {
+		for(var d=0; d<numDirs; d++) {
+			var dirInRad = Math.toRadians(d*10);
+			stepLng[d] = DroneConstraints.r*Math.cos(dirInRad);
+			stepLat[d] = DroneConstraints.r*Math.sin(dirInRad);
+		}
+	}
+
+	private FlightMath() {
+	}
+
+	//returns the change in longitude of one move in direction d*10
+	public static double stepLng(int d) {
+		return stepLng[d];
+	}
+
+	//returns the change in latitude of one move in direction d*10
+	public static double stepLat(int d) {
+		return stepLat[d];
+	}
+
+	//returns True if dirInDeg is one of the 36 directions, 0 to 350 in steps of 10
+	public static boolean isLatticeDir(int dirInDeg) {
+		return dirInDeg >= 0 && dirInDeg < 360 && dirInDeg % 10 == 0;
+	}
+
+	//returns the longitude after a move from lng in the direction dirInDeg
+	public static double nextLng(double lng, int dirInDeg) {
+		if(isLatticeDir(dirInDeg)) {
+			return lng + stepLng[dirInDeg/10];
+		}
+		return lng + DroneConstraints.r*Math.cos(Math.toRadians(dirInDeg));
+	}
+
+	//returns the latitude after a move from lat in the direction dirInDeg
+	public static double nextLat(double lat, int dirInDeg) {
+		if(isLatticeDir(dirInDeg)) {
+			return lat + stepLat[dirInDeg/10];
+		}
+		return lat + DroneConstraints.r*Math.sin(Math.toRadians(dirInDeg));
+	}
+
+	//returns the square of the Euclidean distance between two points, which orders points by distance as the distance itself does
+	public static double distSq(double lng1, double lat1, double lng2, double lat2) {
+		var dLng = lng1-lng2;
+		var dLat = lat1-lat2;
+		return dLng*dLng + dLat*dLat;
+	}
+
+	//returns the Euclidean distance between two points
+	public static double dist(double lng1, double lat1, double lng2, double lat2) {
+		return Math.sqrt(distSq(lng1, lat1, lng2, lat2));
+	}
+
+	//returns the angle in degrees, from 0 up to 360, of the line from the first point to the second
+	public static double angle(double fromLng, double fromLat, double toLng, double toLat) {
+		return Math.toDegrees(Math.atan2(fromLat-toLat, fromLng-toLng) + Math.PI);
+	}
+
+	//returns the direction (a multiple of 10) of a move from the first point to the second, rounded to the nearest multiple of 10
+	//such that it is exactly the direction the move was made in, unlike computeDir which rounds down
+	public static int moveDir(double fromLng, double fromLat, double toLng, double toLat) {
+		var dir = (int) (Math.round(angle(fromLng, fromLat, toLng, toLat)/10)*10);
+		return dir == 360 ? 0 : dir;
+	}
+
+}
@@ -0,0 +1,122 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.mapbox.geojson.Point;
+
+//the finished flight of one day, planned once and handed to every output: the drone's positions, the direction of each move,
+//the sensor (if any) connected to after each move and the sensors never connected to
+//a plan can't be changed once made, such that any number of sinks can read it, on any threads
+public final class FlightPlan {
+	private final DaySnapshot snapshot;
+	private final double[] lng; //position i is the position after i moves, position 0 the initial position
+	private final double[] lat;
+	private final int[] directions; //direction of move k, the move from position k to position k+1
+	private final int[] sensorHits; //index in the snapshot of the sensor connected to after move k, or -1 if none
+	private final int[] unvisited; //indices in the snapshot of the sensors never connected to, in snapshot order
+
+	private FlightPlan(DaySnapshot snapshot, double[] lng, double[] lat, int[] directions, int[] sensorHits, int[] unvisited) {
+		this.snapshot = snapshot;
+		this.lng = lng;
+		this.lat = lat;
+		this.directions = directions;
+		this.sensorHits = sensorHits;
+		this.unvisited = unvisited;
+	}
+
+	//returns the plan of the flight flown over the sensors of snapshot
+	public static FlightPlan of(DaySnapshot snapshot, FlightState flight) {
+		var numMoves = flight.movesMade();
+		var lng = new double[numMoves + 1];
+		var lat = new double[numMoves + 1];
+		var directions = new int[numMoves];
+		var sensorHits = new int[numMoves];
+		var visited = new boolean[snapshot.size()];
+		for(var i=0; i<=numMoves; i++) {
+			lng[i] = flight.lng(i);
+			lat[i] = flight.lat(i);
+		}
+		for(var k=0; k<numMoves; k++) {
+			directions[k] = flight.direction(k);
+			sensorHits[k] = flight.sensor(k);
+			if(sensorHits[k] != -1) {
+				visited[sensorHits[k]] = true;
+			}
+		}
+		var unvisited = new int[snapshot.size()];
+		var numUnvisited = 0;
+		for(var i=0; i<visited.length; i++) {
+			if(visited[i] == false) {
+				unvisited[numUnvisited++] = i;
+			}
+		}
+		return new FlightPlan(snapshot, lng, lat, directions, sensorHits, Arrays.copyOf(unvisited, numUnvisited));
+	}
+
+	//returns the sensors of the day the flight was planned over
+	public DaySnapshot snapshot() {
+		return snapshot;
+	}
+
+	//returns the number of moves of the flight
+	public int numMoves() {
+		return directions.length;
+	}
+
+	//returns the longitude of the drone after i moves
+	public double lng(int i) {
+		return lng[i];
+	}
+
+	//returns the latitude of the drone after i moves
+	public double lat(int i) {
+		return lat[i];
+	}
+
+	//returns the direction of move k (counting from 0)
+	public int direction(int k) {
+		return directions[k];
+	}
+
+	//returns the index in the snapshot of the sensor connected to after move k (counting from 0), or -1 if it connected to none
+	public int sensorHit(int k) {
+		return sensorHits[k];
+	}
+
+	//returns the number of sensors connected to
+	public int numVisited() {
+		return snapshot.size() - unvisited.length;
+	}
+
+	//returns the indices in the snapshot of the sensors never connected to, in snapshot order
+	public int[] unvisited() {
+		return unvisited.clone();
+	}
+
+	//returns every position of the drone, starting with its initial position
+	public List<Point> positions() {
+		var positions = new ArrayList<Point>(lng.length);
+		for(var i=0; i<lng.length; i++) {
+			positions.add(Point.fromLngLat(lng[i], lat[i]));
+		}
+		return positions;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if(other instanceof FlightPlan == false) {
+			return false;
+		}
+		var plan = (FlightPlan) other;
+		return snapshot == plan.snapshot && Arrays.equals(lng, plan.lng) && Arrays.equals(lat, plan.lat)
+				&& Arrays.equals(directions, plan.directions) && Arrays.equals(sensorHits, plan.sensorHits);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31*Arrays.hashCode(lng) + Arrays.hashCode(sensorHits);
+	}
+
+}
@@ -0,0 +1,25 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.util.List;
+
+//an output of a day's flight plan, such as the flightpath text file or the readings GeoJSON file
+//every sink of a run is given the same plan, such that the flight is planned once however many outputs there are
+public interface FlightSink {
+
+	//writes the plan of the flight of the given day
+	void write(String day, String month, String year, FlightPlan plan) throws IOException;
+
+	//returns the sinks of the files the coursework asks for: the flightpath text file and the readings GeoJSON file
+	static List<FlightSink> defaults() {
+		return List.of(new WriteFlightpath(), new WriteReadings());
+	}
+
+	//writes plan to every one of sinks in turn
+	static void writeAll(List<FlightSink> sinks, String day, String month, String year, FlightPlan plan) throws IOException {
+		for(var sink : sinks) {
+			sink.write(day, month, year, plan);
+		}
+	}
+
+}
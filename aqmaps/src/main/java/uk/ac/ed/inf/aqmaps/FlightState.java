@@ -0,0 +1,124 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mapbox.geojson.Point;
+
+//the state of one flight while it is being planned: where the drone is, where it has been, how many moves it has made,
+//the direction of each move and which sensor (if any) it connected to after each move
+//positions are held as plain longitudes and latitudes, and only turned into Points for the output files
+//a flight belongs to the one thread planning it, such that many flights can be planned at once
+public class FlightState {
+	private final int maxMoves;
+	private final double[] lng; //position i is the position after i moves, position 0 the initial position
+	private final double[] lat;
+	private final int[] direction; //direction of move k, the move from position k to position k+1
+	private final int[] sensor; //index in the snapshot of the sensor connected to after move k, or -1 if none
+	private int movesMade = 0;
+
+	public FlightState(double initLng, double initLat, int maxMoves) {
+		this.maxMoves = maxMoves;
+		lng = new double[maxMoves + 1];
+		lat = new double[maxMoves + 1];
+		direction = new int[maxMoves];
+		sensor = new int[maxMoves];
+		lng[0] = initLng;
+		lat[0] = initLat;
+	}
+
+	public FlightState(Point initPos, int maxMoves) {
+		this(initPos.longitude(), initPos.latitude(), maxMoves);
+	}
+
+	//returns the longitude of the position the drone took off from
+	public double initLng() {
+		return lng[0];
+	}
+
+	//returns the latitude of the position the drone took off from
+	public double initLat() {
+		return lat[0];
+	}
+
+	//returns the longitude of the current position of the drone
+	public double lng() {
+		return lng[movesMade];
+	}
+
+	//returns the latitude of the current position of the drone
+	public double lat() {
+		return lat[movesMade];
+	}
+
+	//returns the longitude of the drone after i moves
+	public double lng(int i) {
+		return lng[i];
+	}
+
+	//returns the latitude of the drone after i moves
+	public double lat(int i) {
+		return lat[i];
+	}
+
+	//returns the direction of move k (counting from 0)
+	public int direction(int k) {
+		return direction[k];
+	}
+
+	//returns the index of the sensor connected to after move k (counting from 0), or -1 if it connected to none
+	public int sensor(int k) {
+		return sensor[k];
+	}
+
+	//returns the number of moves made so far
+	public int movesMade() {
+		return movesMade;
+	}
+
+	//returns the maximum number of moves the drone can make
+	public int maxMoves() {
+		return maxMoves;
+	}
+
+	//returns True if the drone can still make another move
+	public boolean canMove() {
+		return movesMade < maxMoves;
+	}
+
+	//moves the drone to (nextLng, nextLat) in direction dir, recording the index of the sensor it connected to there (or -1)
+	public void move(double nextLng, double nextLat, int dir, int sensorIndex) {
+		if(canMove() == false) {
+			throw new IllegalStateException("The drone has already made " + maxMoves + " moves");
+		}
+		direction[movesMade] = dir;
+		sensor[movesMade] = sensorIndex;
+		movesMade++;
+		lng[movesMade] = nextLng;
+		lat[movesMade] = nextLat;
+	}
+
+	//returns the current position of the drone
+	public Point position() {
+		return Point.fromLngLat(lng(), lat());
+	}
+
+	//returns every position of the drone so far, starting with its initial position
+	public List<Point> positions() {
+		var positions = new ArrayList<Point>(movesMade + 1);
+		for(var i=0; i<=movesMade; i++) {
+			positions.add(Point.fromLngLat(lng[i], lat[i]));
+		}
+		return positions;
+	}
+
+	//returns the sensor of the snapshot connected to after each move, or null for moves which connected to no sensor
+	public List<Point> sensorsVisited(DaySnapshot snapshot) {
+		var sensorsVisited = new ArrayList<Point>(movesMade);
+		for(var k=0; k<movesMade; k++) {
+			sensorsVisited.add(sensor[k] == -1 ? null : snapshot.point(sensor[k]));
+		}
+		return sensorsVisited;
+	}
+
+}
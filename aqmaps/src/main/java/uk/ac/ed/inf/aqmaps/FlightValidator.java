@@ -0,0 +1,244 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.mapbox.geojson.Point;
+
+//checks flightpath files, as written by WriteFlightpath, against the rules of the drone's flights: at most 150 moves,
+//each a move of length r ending where a move in the direction written does, in a direction which is a multiple of 10 from 0 to 350, starting where the last one ended,
+//ending inside the confinement area and crossing no side of any building, and sensors read only from within the connect range
+//a file is read a line at a time and never held in memory, and the files of a directory are checked several at once,
+//such that years of archived flights can be checked in one run
+public class FlightValidator {
+	private final static double stepTolerance = 1e-9*DroneConstraints.r; //the rounding a move's end may have
+
+	//a move which breaks a rule
+	public static class Violation{
+		final int move; //numbered from 1 as in the file, or 0 if the file couldn't be read
+		final String rule;
+
+		Violation(int move, String rule) {
+			this.move = move;
+			this.rule = rule;
+		}
+
+		@Override
+		public String toString() {
+			return "move " + move + ": " + rule;
+		}
+	}
+
+	//the outcome of checking one file
+	public static class Report{
+		final Path file;
+		final int numMoves;
+		final List<Violation> violations;
+
+		Report(Path file, int numMoves, List<Violation> violations) {
+			this.file = file;
+			this.numMoves = numMoves;
+			this.violations = violations;
+		}
+
+		//returns True if the flight breaks no rule
+		public boolean valid() {
+			return violations.isEmpty();
+		}
+	}
+
+	private final NoFlyIndex noFlyIndex;
+	private final SensorLocation locations;
+	private final ConcurrentHashMap<String, double[]> sensors = new ConcurrentHashMap<String, double[]>(); //{lng, lat} of each location read
+
+	//checks flights against the buildings of noFlyIndex, looking the sensors read up with locations
+	public FlightValidator(NoFlyIndex noFlyIndex, SensorLocation locations) {
+		this.noFlyIndex = noFlyIndex;
+		this.locations = locations;
+	}
+
+	//returns the {lng, lat} of the sensor at location, resolving it the first time it is read, or null if it isn't three words
+	private double[] sensor(String location) throws IOException, InterruptedException {
+		var coords = sensors.get(location);
+		if(coords == null) {
+			var words = location.split("\\.");
+			if(words.length != 3) {
+				return null;
+			}
+			var resolved = locations.getCoords(words[0], words[1], words[2]);
+			coords = new double[] {resolved.lng, resolved.lat};
+			sensors.putIfAbsent(location, coords);
+		}
+		return coords;
+	}
+
+	//adds the violations of one move, from (fromLng, fromLat) in direction dir (written as dirText) to (toLng, toLat)
+	//reading the sensor at location, to violations
+	private void checkMove(int move, double fromLng, double fromLat, double dir, String dirText, double toLng, double toLat, String location,
+			List<Violation> violations) throws InterruptedException {
+		if(dir % 10 != 0 || dir < 0 || dir > 350) {
+			violations.add(new Violation(move, "direction " + dirText + " isn't a multiple of 10 from 0 to 350"));
+		}
+		var length = FlightMath.dist(fromLng, fromLat, toLng, toLat);
+		if(Math.abs(length - DroneConstraints.r) > stepTolerance) {
+			violations.add(new Violation(move, "moves " + length + " rather than " + DroneConstraints.r));
+		}
+		else if(dir == Math.rint(dir)) { //a move of length r must also end where a move in the direction written does
+			var offBy = FlightMath.dist(toLng, toLat, FlightMath.nextLng(fromLng, (int) dir), FlightMath.nextLat(fromLat, (int) dir));
+			if(offBy > stepTolerance) {
+				violations.add(new Violation(move, "ends " + offBy + " away from where a move in direction " + dirText + " does"));
+			}
+		}
+		if(DroneConstraints.withinArea(toLng, toLat) == false) {
+			violations.add(new Violation(move, "ends outside the confinement area"));
+		}
+		if(noFlyIndex.noIntersections(fromLng, fromLat, toLng, toLat) == false) {
+			//only a move which crosses a side is tested again, to name the buildings it crosses
+			var buildings = new TreeSet<Integer>();
+			for(var e : noFlyIndex.intersectingEdges(Point.fromLngLat(fromLng, fromLat), Point.fromLngLat(toLng, toLat))) {
+				buildings.add(noFlyIndex.building(e));
+			}
+			var names = buildings.toString();
+			violations.add(new Violation(move, "crosses no-fly zone " + names.substring(1, names.length()-1)));
+		}
+		if(location.equals("null") == false) {
+			try {
+				var sensor = sensor(location);
+				if(sensor == null) {
+					violations.add(new Violation(move, "reads " + location + ", which isn't a what3words location"));
+				}
+				else if(DroneMovement.withinRange(toLng, toLat, sensor[0], sensor[1]) == false) {
+					violations.add(new Violation(move, "reads " + location + " from " + FlightMath.dist(toLng, toLat, sensor[0], sensor[1])
+							+ " away, beyond the connect range of " + DroneMovement.getConnectRange()));
+				}
+			} catch (IOException e) {
+				violations.add(new Violation(move, "reads " + location + ", which can't be found (" + e.getMessage() + ")"));
+			}
+		}
+	}
+
+	//returns the report of the flightpath file, checked a line at a time
+	public Report validate(Path file) throws IOException, InterruptedException {
+		var violations = new ArrayList<Violation>();
+		var move = 0;
+		var lastLng = Double.NaN; //where the last move ended, NaN if it couldn't be read
+		var lastLat = Double.NaN;
+		try (var reader = Files.newBufferedReader(file)) {
+			for(var line=reader.readLine(); line!=null; line=reader.readLine()) {
+				move++;
+				if(move == DroneMovement.getMaxMoves() + 1) {
+					violations.add(new Violation(move, "is beyond the " + DroneMovement.getMaxMoves() + " moves allowed"));
+				}
+				var fields = line.split(",");
+				double fromLng, fromLat, dir, toLng, toLat;
+				try {
+					if(fields.length != 7) {
+						throw new NumberFormatException(fields.length + " fields rather than 7");
+					}
+					if(Integer.parseInt(fields[0].trim()) != move) {
+						violations.add(new Violation(move, "is numbered " + fields[0].trim()));
+					}
+					fromLng = Double.parseDouble(fields[1]);
+					fromLat = Double.parseDouble(fields[2]);
+					dir = Double.parseDouble(fields[3]);
+					toLng = Double.parseDouble(fields[4]);
+					toLat = Double.parseDouble(fields[5]);
+				} catch (NumberFormatException e) {
+					violations.add(new Violation(move, "can't be read (" + e.getMessage() + ")"));
+					lastLng = Double.NaN;
+					lastLat = Double.NaN;
+					continue;
+				}
+				if(move == 1 && DroneConstraints.withinArea(fromLng, fromLat) == false) {
+					violations.add(new Violation(move, "starts outside the confinement area"));
+				}
+				if(move > 1 && Double.isNaN(lastLng) == false && (fromLng != lastLng || fromLat != lastLat)) {
+					violations.add(new Violation(move, "doesn't start where move " + (move-1) + " ended"));
+				}
+				checkMove(move, fromLng, fromLat, dir, fields[3].trim(), toLng, toLat, fields[6].trim(), violations);
+				lastLng = toLng;
+				lastLat = toLat;
+			}
+		}
+		return new Report(file, move, violations);
+	}
+
+	//returns the report of the file, or one with the reason it couldn't be read as its only violation
+	private Report validateOrReport(Path file) {
+		try {
+			return validate(file);
+		} catch (Exception e) {
+			if(e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			return new Report(file, 0, List.of(new Violation(0, "the file can't be read (" + e + ")")));
+		}
+	}
+
+	//returns the flightpath files to check: path itself if it is a file, or every flightpath*.txt in it, in name order, if it is a directory
+	public static List<Path> flightpathFiles(Path path) throws IOException {
+		var files = new ArrayList<Path>();
+		if(Files.isDirectory(path)) {
+			try (var stream = Files.newDirectoryStream(path, "flightpath*.txt")) {
+				stream.forEach(files::add);
+			}
+			files.sort(null);
+		}
+		else {
+			files.add(path);
+		}
+		return files;
+	}
+
+	//checks every file on a pool of at most parallelism threads, returning the report of each in the order of files
+	//a file which can't be read is reported as such and doesn't stop the others
+	public List<Report> validateAll(List<Path> files, int parallelism) throws InterruptedException {
+		var pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, files.size())));
+		try {
+			var futures = new ArrayList<Future<Report>>();
+			for(var file : files) {
+				futures.add(pool.submit(() -> validateOrReport(file)));
+			}
+			var reports = new ArrayList<Report>();
+			for(var future : futures) {
+				try {
+					reports.add(future.get());
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return reports;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	//checks the flightpath file, or every flightpath file in the directory, at path against the buildings and sensors of the web server,
+	//prints each violation with its file and move and a total, and returns the number of flights which break a rule
+	public static int run(String path, String port, int parallelism) throws IOException, InterruptedException {
+		var source = ReadWebServer.forPort(port);
+		var validator = new FlightValidator(NoFlyIndex.load(source), new SensorLocation(source, WordsCoordCache.shared()));
+		var reports = validator.validateAll(flightpathFiles(Paths.get(path)), parallelism);
+		var invalid = 0;
+		for(var report : reports) {
+			if(report.valid() == false) {
+				invalid++;
+				for(var violation : report.violations) {
+					System.out.println(report.file + ": " + violation);
+				}
+			}
+		}
+		System.out.println(reports.size() + " flights checked, " + invalid + " breaking a rule");
+		return invalid;
+	}
+
+}
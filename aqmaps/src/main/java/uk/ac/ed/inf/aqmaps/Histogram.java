@@ -0,0 +1,111 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+//counts non-negative values in buckets whose bounds are powers of two, such that recording a value is a few striped additions
+//and any number of threads can record at once; percentiles are given as the upper bound of the bucket they fall in
+public final class Histogram {
+	private final static int numBuckets = 64; //bucket b holds the values v with 2^(b-1) <= v < 2^b, bucket 0 holds 0
+
+	private final LongAdder[] buckets = new LongAdder[numBuckets];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	public Histogram() {
+		for(var b=0; b<numBuckets; b++) {
+			buckets[b] = new LongAdder();
+		}
+	}
+
+	//records value, treating a negative value as 0
+	public void record(long value) {
+		var v = Math.max(0, value);
+		buckets[64 - Long.numberOfLeadingZeros(v)].increment();
+		count.increment();
+		sum.add(v);
+		max.accumulate(v);
+	}
+
+	//returns the number of values recorded
+	public long count() {
+		return count.sum();
+	}
+
+	//returns the sum of the values recorded
+	public long sum() {
+		return sum.sum();
+	}
+
+	//returns the largest value recorded, or 0 if there is none
+	public long max() {
+		return max.get();
+	}
+
+	//returns the mean of the values recorded, or 0 if there is none
+	public double mean() {
+		var n = count();
+		return n == 0 ? 0 : (double) sum() / n;
+	}
+
+	//returns the exclusive upper bound of the bucket holding the value below which the fraction q of the values fall, or 0 if there is none
+	public long percentile(double q) {
+		var n = count();
+		if(n == 0) {
+			return 0;
+		}
+		var rank = (long) Math.ceil(q * n);
+		var seen = 0L;
+		for(var b=0; b<numBuckets; b++) {
+			seen += buckets[b].sum();
+			if(seen >= Math.max(1, rank)) {
+				return upperBound(b);
+			}
+		}
+		return max();
+	}
+
+	//returns the exclusive upper bound of bucket b
+	private static long upperBound(int b) {
+		return b == numBuckets-1 ? Long.MAX_VALUE : 1L << b;
+	}
+
+	//forgets every value recorded
+	public void reset() {
+		for(var bucket : buckets) {
+			bucket.reset();
+		}
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+
+	//returns the count, sum, mean, max, median, 90th and 99th percentiles, and the non-empty buckets as [upper bound, count] pairs
+	public JsonObject toJson() {
+		var json = new JsonObject();
+		json.addProperty("count", count());
+		json.addProperty("sum", sum());
+		json.addProperty("mean", mean());
+		json.addProperty("max", max());
+		json.addProperty("p50", percentile(0.5));
+		json.addProperty("p90", percentile(0.9));
+		json.addProperty("p99", percentile(0.99));
+		var bucketList = new JsonArray();
+		for(var b=0; b<numBuckets; b++) {
+			var bucketCount = buckets[b].sum();
+			if(bucketCount > 0) {
+				var bucket = new JsonArray();
+				bucket.add(upperBound(b));
+				bucket.add(bucketCount);
+				bucketList.add(bucket);
+			}
+		}
+		json.add("buckets", bucketList);
+		return json;
+	}
+
+}
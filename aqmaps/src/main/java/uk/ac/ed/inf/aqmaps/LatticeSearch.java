@@ -0,0 +1,291 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.util.Arrays;
+
+//finds the fewest moves between two points by A* over the lattice of positions the drone can reach, one move of length r
+//in one of the 36 directions at a time; a move is kept only if it stays in the area and crosses no building
+//positions are hashed into square cells a fraction of a move across, and a cell already reached in as few moves is not searched again,
+//such that the search is finite and the number of moves found is the fewest up to positions closer than one cell
+//a search keeps all its state to itself, such that one LatticeSearch can serve many threads at once
+public final class LatticeSearch {
+	//a quarter of a move: over a month of flights, cells of r/8 save under one move a flight on average, with a worse worst day,
+	//and take a third longer to search
+	private final static double cellSize = DroneConstraints.r/4;
+	//the most positions taken off the open list in one search before giving up, overridable with -Daqmaps.latticeMaxExpansions
+	public final static int defaultMaxExpansions = Integer.getInteger("aqmaps.latticeMaxExpansions", 200_000);
+
+	private final NoFlyIndex noFlyIndex;
+	private final int maxExpansions;
+
+	public LatticeSearch(NoFlyIndex noFlyIndex, int maxExpansions) {
+		this.noFlyIndex = noFlyIndex;
+		this.maxExpansions = maxExpansions;
+	}
+
+	public LatticeSearch(NoFlyIndex noFlyIndex) {
+		this(noFlyIndex, defaultMaxExpansions);
+	}
+
+	//returns the fewest moves needed to get from a point dist away from the goal to within goalRange of it, if nothing were in the way
+	private static int movesLeft(double dist, double goalRange) {
+		return Math.max(0, (int) Math.ceil((dist - goalRange)/DroneConstraints.r - 1e-9));
+	}
+
+	//returns the fewest legal moves from (fromLng, fromLat) to within goalRange of (toLng, toLat), as the longitude, latitude and direction
+	//after each move in turn (three values per move), or null if the goal can't be reached in maxMoves moves or the search gives up
+	//of the ways with the fewest moves found, the one ending closest to the goal is returned, such that the next leg starts well placed
+	public double[] search(double fromLng, double fromLat, double toLng, double toLat, double goalRange, int maxMoves) {
+		var nodes = new Nodes();
+		var goal = search(nodes, fromLng, fromLat, toLng, toLat, goalRange, maxMoves, true);
+		return goal == -1 ? null : nodes.movesTo(goal);
+	}
+
+	//returns the fewest legal moves from (fromLng, fromLat) to within goalRange of (toLng, toLat), as above,
+	//or -1 if the goal can't be reached in maxMoves moves or the search gives up
+	//this stops at the first way found to reach the goal, not looking for the ones ending closer to it
+	public int countMoves(double fromLng, double fromLat, double toLng, double toLat, double goalRange, int maxMoves) {
+		var nodes = new Nodes();
+		var goal = search(nodes, fromLng, fromLat, toLng, toLat, goalRange, maxMoves, false);
+		return goal == -1 ? -1 : nodes.moves[goal];
+	}
+
+	//searches the lattice from (fromLng, fromLat), adding the positions reached to nodes, and returns the node reached at the end
+	//of the fewest moves to the goal (the one closest to the goal if closestEnd), or -1 if there is none
+	private int search(Nodes nodes, double fromLng, double fromLat, double toLng, double toLat, double goalRange, int maxMoves, boolean closestEnd) {
+		var open = new OpenList();
+		var cells = new CellTable();
+		var root = nodes.add(fromLng, fromLat, 0, -1, -1);
+		if(FlightMath.dist(toLng, toLat, fromLng, fromLat) < goalRange) {
+			return root;
+		}
+		cells.offer(cellOf(fromLng, fromLat), 0);
+		open.push(root, movesLeft(FlightMath.dist(toLng, toLat, fromLng, fromLat), goalRange), FlightMath.dist(toLng, toLat, fromLng, fromLat));
+		var expansions = 0;
+		var bestGoal = -1;
+		var bestGoalDist = goalRange;
+		while(open.isEmpty() == false && expansions < maxExpansions) {
+			if(bestGoal != -1 && open.peekEstimate() > nodes.moves[bestGoal]) { //no other way can reach the goal as soon
+				break;
+			}
+			var node = open.pop();
+			expansions++;
+			var lng = nodes.lng[node];
+			var lat = nodes.lat[node];
+			var moves = nodes.moves[node] + 1;
+			if(moves > maxMoves || (bestGoal != -1 && moves > nodes.moves[bestGoal])) {
+				continue;
+			}
+			for(var d=0; d<FlightMath.numDirs; d++) {
+				var nextLng = lng + FlightMath.stepLng(d);
+				var nextLat = lat + FlightMath.stepLat(d);
+				var cell = cellOf(nextLng, nextLat);
+				if(cells.reachedIn(cell, moves)) {
+					continue;
+				}
+				if(DroneConstraints.withinArea(nextLng, nextLat) == false || noFlyIndex.noIntersections(lng, lat, nextLng, nextLat) == false) {
+					continue;
+				}
+				cells.offer(cell, moves);
+				var child = nodes.add(nextLng, nextLat, moves, node, d*10);
+				var dist = FlightMath.dist(toLng, toLat, nextLng, nextLat);
+				if(dist < bestGoalDist) { //every move costs the same, so the first to reach the goal is among the fewest
+					if(closestEnd == false) {
+						return child;
+					}
+					bestGoal = child;
+					bestGoalDist = dist;
+					continue;
+				}
+				if(dist < goalRange) {
+					continue;
+				}
+				open.push(child, moves + movesLeft(dist, goalRange), dist);
+			}
+		}
+		return bestGoal;
+	}
+
+	//returns the cell holding (lng, lat), as the two cell coordinates packed into a long
+	private static long cellOf(double lng, double lat) {
+		var x = (long) Math.floor(lng/cellSize);
+		var y = (long) Math.floor(lat/cellSize);
+		return (x << 32) ^ (y & 0xffffffffL);
+	}
+
+	//the positions reached by one search, in growable parallel arrays
+	private static class Nodes {
+		double[] lng = new double[1024];
+		double[] lat = new double[1024];
+		int[] moves = new int[1024];
+		int[] parent = new int[1024];
+		int[] dir = new int[1024];
+		int size = 0;
+
+		int add(double nodeLng, double nodeLat, int nodeMoves, int nodeParent, int nodeDir) {
+			if(size == lng.length) {
+				lng = Arrays.copyOf(lng, 2*size);
+				lat = Arrays.copyOf(lat, 2*size);
+				moves = Arrays.copyOf(moves, 2*size);
+				parent = Arrays.copyOf(parent, 2*size);
+				dir = Arrays.copyOf(dir, 2*size);
+			}
+			lng[size] = nodeLng;
+			lat[size] = nodeLat;
+			moves[size] = nodeMoves;
+			parent[size] = nodeParent;
+			dir[size] = nodeDir;
+			return size++;
+		}
+
+		//returns the moves from the first node to the given one, three values per move
+		double[] movesTo(int node) {
+			var path = new double[3*moves[node]];
+			for(var n=node; parent[n] != -1; n=parent[n]) {
+				var k = 3*(moves[n]-1);
+				path[k] = lng[n];
+				path[k+1] = lat[n];
+				path[k+2] = dir[n];
+			}
+			return path;
+		}
+	}
+
+	//a binary heap of nodes, least estimated total moves first and, among equals, nearest the goal first
+	private static class OpenList {
+		int[] node = new int[1024];
+		int[] estimate = new int[1024];
+		double[] dist = new double[1024];
+		int size = 0;
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		private boolean before(int i, int j) {
+			return estimate[i] < estimate[j] || (estimate[i] == estimate[j] && dist[i] < dist[j]);
+		}
+
+		private void swap(int i, int j) {
+			var tempNode = node[i];
+			node[i] = node[j];
+			node[j] = tempNode;
+			var tempEstimate = estimate[i];
+			estimate[i] = estimate[j];
+			estimate[j] = tempEstimate;
+			var tempDist = dist[i];
+			dist[i] = dist[j];
+			dist[j] = tempDist;
+		}
+
+		void push(int n, int nEstimate, double nDist) {
+			if(size == node.length) {
+				node = Arrays.copyOf(node, 2*size);
+				estimate = Arrays.copyOf(estimate, 2*size);
+				dist = Arrays.copyOf(dist, 2*size);
+			}
+			node[size] = n;
+			estimate[size] = nEstimate;
+			dist[size] = nDist;
+			for(var i=size++; i>0 && before(i, (i-1)/2); i=(i-1)/2) {
+				swap(i, (i-1)/2);
+			}
+		}
+
+		//returns the estimated total moves of the first node
+		int peekEstimate() {
+			return estimate[0];
+		}
+
+		int pop() {
+			var top = node[0];
+			swap(0, --size);
+			for(var i=0;;) {
+				var least = i;
+				var left = 2*i+1;
+				var right = left+1;
+				if(left < size && before(left, least)) {
+					least = left;
+				}
+				if(right < size && before(right, least)) {
+					least = right;
+				}
+				if(least == i) {
+					break;
+				}
+				swap(i, least);
+				i = least;
+			}
+			return top;
+		}
+	}
+
+	//the fewest moves each cell has been reached in, as an open addressing hash table from packed cell to moves
+	private static class CellTable {
+		private final static long empty = Long.MIN_VALUE;
+		long[] keys = new long[4096];
+		int[] moves = new int[4096];
+		int size = 0;
+
+		CellTable() {
+			Arrays.fill(keys, empty);
+		}
+
+		private static int slot(long key, int mask) {
+			var h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h >>> 32) & mask;
+		}
+
+		//returns True if cell has already been reached in cellMoves moves or fewer
+		boolean reachedIn(long cell, int cellMoves) {
+			var mask = keys.length - 1;
+			for(var i=slot(cell, mask); keys[i] != empty; i=(i+1) & mask) {
+				if(keys[i] == cell) {
+					return moves[i] <= cellMoves;
+				}
+			}
+			return false;
+		}
+
+		//records that cell was reached in cellMoves moves, returning False if it had already been reached in as few
+		boolean offer(long cell, int cellMoves) {
+			var mask = keys.length - 1;
+			var i = slot(cell, mask);
+			while(keys[i] != empty) {
+				if(keys[i] == cell) {
+					if(moves[i] <= cellMoves) {
+						return false;
+					}
+					moves[i] = cellMoves;
+					return true;
+				}
+				i = (i+1) & mask;
+			}
+			keys[i] = cell;
+			moves[i] = cellMoves;
+			if(++size*2 > keys.length) {
+				grow();
+			}
+			return true;
+		}
+
+		private void grow() {
+			var oldKeys = keys;
+			var oldMoves = moves;
+			keys = new long[2*oldKeys.length];
+			moves = new int[2*oldKeys.length];
+			Arrays.fill(keys, empty);
+			var mask = keys.length - 1;
+			for(var j=0; j<oldKeys.length; j++) {
+				if(oldKeys[j] != empty) {
+					var i = slot(oldKeys[j], mask);
+					while(keys[i] != empty) {
+						i = (i+1) & mask;
+					}
+					keys[i] = oldKeys[j];
+					moves[i] = oldMoves[j];
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,155 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.mapbox.geojson.Point;
+
+//plans one day's flight from each of many candidate launch positions, several at once, and ranks the candidates,
+//such that the launch position needing the fewest moves can be picked before flying
+public class LaunchPlanner {
+	//strict, such that an impossible date such as 31-02-2020 is an error rather than moved to the end of its month
+	private final static DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd-MM-uuuu").withResolverStyle(ResolverStyle.STRICT);
+
+	//the outcome of planning the day's flight from one candidate launch position
+	public static class Candidate{
+		final Point initPos;
+		final int movesUsed;
+		final int sensorsVisited;
+		final boolean returned; //True if the flight ended close to initPos
+		final String error; //null if the flight was planned
+
+		Candidate(Point initPos, int movesUsed, int sensorsVisited, boolean returned, String error) {
+			this.initPos = initPos;
+			this.movesUsed = movesUsed;
+			this.sensorsVisited = sensorsVisited;
+			this.returned = returned;
+			this.error = error;
+		}
+
+		//returns the line describing this candidate in the ranking file
+		String csvLine() {
+			return initPos.latitude() + "," + initPos.longitude() + "," + movesUsed + "," + sensorsVisited + "," + returned + ","
+					+ (error == null ? "" : error.replace(',', ';'));
+		}
+	}
+
+	//the order of the ranking: the most sensors visited first, then the fewest moves used, then the flights which returned;
+	//candidates which failed come last
+	private final static Comparator<Candidate> ranking = Comparator.<Candidate, Boolean>comparing((c) -> c.error != null)
+			.thenComparing(Comparator.comparingInt((Candidate c) -> c.sensorsVisited).reversed())
+			.thenComparingInt((c) -> c.movesUsed)
+			.thenComparing((c) -> c.returned == false);
+
+	//returns the candidates given either as a grid "COLSxROWS" of cell centres over the confinement area,
+	//leaving out those inside a building, or as a list "lat,lng;lat,lng;..."
+	public static List<Point> parseCandidates(String candidates, NoFlyIndex noFlyIndex) {
+		var points = new ArrayList<Point>();
+		var gridIndex = candidates.indexOf('x');
+		if(gridIndex > 0) {
+			var cols = Integer.parseInt(candidates.substring(0, gridIndex));
+			var rows = Integer.parseInt(candidates.substring(gridIndex + 1));
+			for(var point : DroneConstraints.areaGrid(cols, rows)) {
+				if(noFlyIndex.insideAnyBuilding(point.longitude(), point.latitude()) == false) {
+					points.add(point);
+				}
+			}
+		}
+		else {
+			for(var candidate : candidates.split(";")) {
+				var latLng = candidate.split(",");
+				points.add(Point.fromLngLat(Double.parseDouble(latLng[1].trim()), Double.parseDouble(latLng[0].trim())));
+			}
+		}
+		return points;
+	}
+
+	//plans the flight of the day from one candidate
+	//a candidate outside the confinement area or inside a building is reported as such rather than planned
+	private static Candidate planFrom(Point initPos, DaySnapshot snapshot, DroneMovement planner, NoFlyIndex noFlyIndex, long seed) {
+		if(DroneConstraints.withinArea(initPos) == false) {
+			return new Candidate(initPos, 0, 0, false, "outside the confinement area");
+		}
+		if(noFlyIndex.insideAnyBuilding(initPos.longitude(), initPos.latitude())) {
+			return new Candidate(initPos, 0, 0, false, "inside a building");
+		}
+		try {
+			//a trial flight, made into a plan here rather than by dronePath, such that it isn't counted in the run metrics' flights
+			var plan = FlightPlan.of(snapshot, planner.fly(snapshot, initPos, seed));
+			var numMoves = plan.numMoves();
+			var returned = FlightMath.distSq(plan.lng(0), plan.lat(0), plan.lng(numMoves), plan.lat(numMoves)) < DroneConstraints.r*DroneConstraints.r;
+			return new Candidate(initPos, numMoves, plan.numVisited(), returned, null);
+		} catch (RuntimeException e) {
+			return new Candidate(initPos, 0, 0, false, e.toString());
+		}
+	}
+
+	//plans the day's flight from every candidate with planner, which plans round the buildings of noFlyIndex, on a pool of at most
+	//parallelism threads, with sensor orders drawn from the seed, returning the candidates best first;
+	//candidates ranked equal keep the order they were given in
+	public static List<Candidate> rank(DaySnapshot snapshot, List<Point> candidates, NoFlyIndex noFlyIndex, DroneMovement planner, long seed, int parallelism) throws InterruptedException {
+		var pool = new ForkJoinPool(Math.max(1, parallelism));
+		try {
+			var futures = new ArrayList<Future<Candidate>>();
+			for(var initPos : candidates) {
+				futures.add(pool.submit(() -> planFrom(initPos, snapshot, planner, noFlyIndex, seed)));
+			}
+			var ranked = new ArrayList<Candidate>();
+			for(var future : futures) {
+				try {
+					ranked.add(future.get());
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			ranked.sort(ranking);
+			return ranked;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	//as above, with a planner of its own
+	public static List<Candidate> rank(DaySnapshot snapshot, List<Point> candidates, NoFlyIndex noFlyIndex, long seed, int parallelism) throws InterruptedException {
+		return rank(snapshot, candidates, noFlyIndex, new DroneMovement(noFlyIndex), seed, parallelism);
+	}
+
+	//writes launch-ranking-dd-mm-yyyy.csv, one line per candidate, best first
+	public static void writeRanking(LocalDate date, List<Candidate> ranked) throws IOException {
+		try (var fw = new FileWriter("launch-ranking-" + date.format(dateFormat) + ".csv")) {
+			fw.write("lat,lng,moves,sensors-visited,returned,error\n");
+			for(var candidate : ranked) {
+				fw.write(candidate.csvLine() + "\n");
+			}
+		}
+	}
+
+	//ranks the given candidates for the given date, prints the best few and writes the ranking file
+	public static void run(String date, String candidates, String seed, String port, int parallelism) throws IOException, InterruptedException {
+		var day = LocalDate.parse(date, dateFormat);
+		var source = ReadWebServer.forPort(port);
+		var noFlyIndex = NoFlyIndex.load(source);
+		var snapshot = DaySnapshot.load(source, new SensorLocation(source, WordsCoordCache.shared()), String.valueOf(day.getYear()),
+				String.format("%02d", day.getMonthValue()), String.format("%02d", day.getDayOfMonth()));
+		var planner = DroneMovement.withDistanceFields(noFlyIndex);
+		var ranked = rank(snapshot, parseCandidates(candidates, noFlyIndex), noFlyIndex, planner, Long.parseLong(seed), parallelism);
+		for(var i=0; i<Math.min(5, ranked.size()); i++) {
+			var candidate = ranked.get(i);
+			if(candidate.error == null) {
+				System.out.println((i+1) + ". " + candidate.initPos.latitude() + " " + candidate.initPos.longitude() + ": "
+						+ candidate.movesUsed + " moves, " + candidate.sensorsVisited + "/" + snapshot.size() + " sensors visited");
+			}
+		}
+		writeRanking(day, ranked);
+	}
+
+}
@@ -0,0 +1,132 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.mapbox.geojson.Point;
+
+//the cost of flying each leg between two of a day's sensors, or between a sensor and the start, planned round the no-fly zones
+//nodes 0 to numSensors-1 are the sensors in snapshot order and node numSensors is the start; the cost of the leg from node i
+//to node j is held at index i*size()+j, both as the number of moves the drone makes and as the length of the shortest way
+//each leg is planned from the exact position of its first node, such that the moves are an estimate of those of the real flight
+public final class LegCostMatrix {
+	//the number of moves given to a leg which can't be flown within a whole flight
+	public final static int unreachable = DroneMovement.getMaxMoves() + 1;
+	private final static int pairsPerTask = 16; //legs planned by one task before it stops splitting
+
+	private final int size;
+	private final int[] moves;
+	private final double[] lengths;
+
+	private LegCostMatrix(int size, int[] moves, double[] lengths) {
+		this.size = size;
+		this.moves = moves;
+		this.lengths = lengths;
+	}
+
+	//plans every leg between the start and the sensors of the snapshot, spreading the legs over the pool
+	public static LegCostMatrix compute(DroneMovement planner, DaySnapshot snapshot, Point start, ForkJoinPool pool) {
+		var numSensors = snapshot.size();
+		var size = numSensors + 1;
+		var lng = new double[size];
+		var lat = new double[size];
+		for(var i=0; i<numSensors; i++) {
+			lng[i] = snapshot.lng(i);
+			lat[i] = snapshot.lat(i);
+		}
+		lng[numSensors] = start.longitude();
+		lat[numSensors] = start.latitude();
+		var moves = new int[size*size];
+		var lengths = new double[size*size];
+		pool.invoke(new LegTask(planner, lng, lat, moves, lengths, 0, size*size));
+		return new LegCostMatrix(size, moves, lengths);
+	}
+
+	//as above, on the common pool
+	public static LegCostMatrix compute(DroneMovement planner, DaySnapshot snapshot, Point start) {
+		return compute(planner, snapshot, start, ForkJoinPool.commonPool());
+	}
+
+	//returns the matrix of legs already planned, the leg from node i to node j at index i*size+j
+	//the legs out of the start and into it needn't be the same way round, such that a flight can end somewhere other than where it began
+	static LegCostMatrix of(int size, int[] moves, double[] lengths) {
+		return new LegCostMatrix(size, moves, lengths);
+	}
+
+	//plans the legs with index from to to-1, splitting them in halves to be stolen by idle threads
+	private static class LegTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final DroneMovement planner;
+		private final double[] lng;
+		private final double[] lat;
+		private final int[] moves;
+		private final double[] lengths;
+		private final int from;
+		private final int to;
+
+		LegTask(DroneMovement planner, double[] lng, double[] lat, int[] moves, double[] lengths, int from, int to) {
+			this.planner = planner;
+			this.lng = lng;
+			this.lat = lat;
+			this.moves = moves;
+			this.lengths = lengths;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from > pairsPerTask) {
+				var middle = (from + to) >>> 1;
+				invokeAll(new LegTask(planner, lng, lat, moves, lengths, from, middle),
+						new LegTask(planner, lng, lat, moves, lengths, middle, to));
+				return;
+			}
+			var size = lng.length;
+			var start = size - 1;
+			for(var k=from; k<to; k++) {
+				var i = k / size;
+				var j = k % size;
+				if(i == j) {
+					continue;
+				}
+				//a sensor is reached once in connecting range, the start once closer than one move
+				var goalRange = j == start ? DroneConstraints.r : DroneMovement.getConnectRange();
+				var legMoves = planner.legMoves(lng[i], lat[i], lng[j], lat[j], goalRange);
+				moves[k] = legMoves == -1 ? unreachable : legMoves;
+				lengths[k] = planner.legPlanner().pathLength(lng[i], lat[i], lng[j], lat[j]);
+			}
+		}
+	}
+
+	//returns the number of nodes, which is the number of sensors plus one for the start
+	public int size() {
+		return size;
+	}
+
+	//returns the node of the start
+	public int start() {
+		return size - 1;
+	}
+
+	//returns the number of moves of the leg from node i to node j, or unreachable
+	public int moves(int i, int j) {
+		return moves[i*size + j];
+	}
+
+	//returns the length of the shortest way from node i to node j, or infinity if there is none
+	public double length(int i, int j) {
+		return lengths[i*size + j];
+	}
+
+	//returns the number of moves of every leg, the leg from node i to node j at index i*size()+j
+	public int[] movesMatrix() {
+		return moves.clone();
+	}
+
+	//returns the length of every leg, the leg from node i to node j at index i*size()+j
+	public double[] lengthsMatrix() {
+		return lengths.clone();
+	}
+
+}
@@ -0,0 +1,284 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.util.Arrays;
+
+//plans the legs of a flight around the no-fly zones: the shortest way between two points is found with A* over the visibility graph
+//of the buildings' corners, each pushed outwards by a margin, and is then followed one move of length r at a time in the 36 directions
+//a planner is prepared once per set of no-fly zones and can be shared between threads
+public final class LegPlanner {
+	private final static double defaultMargin = DroneConstraints.r/3; //how far each corner is pushed away from its building
+
+	private final NoFlyIndex noFlyIndex;
+	private final double[] vertexLng; //the pushed out corners which lie in the area and outside every building
+	private final double[] vertexLat;
+	private final boolean[][] visible; //visible[u][v] is True if the line joining corners u and v crosses no building
+
+	public LegPlanner(NoFlyIndex noFlyIndex) {
+		this(noFlyIndex, defaultMargin);
+	}
+
+	public LegPlanner(NoFlyIndex noFlyIndex, double margin) {
+		this.noFlyIndex = noFlyIndex;
+		var lngs = new double[noFlyIndex.numEdges()];
+		var lats = new double[noFlyIndex.numEdges()];
+		var numVertices = 0;
+		for(var b=0; b<noFlyIndex.numBuildings(); b++) {
+			var first = noFlyIndex.firstEdge(b);
+			var last = noFlyIndex.firstEdge(b+1) - 1;
+			//twice the signed area of the building, positive if its corners go round it anticlockwise
+			var area2 = 0.0;
+			for(var e=first; e<=last; e++) {
+				area2 += noFlyIndex.lng1(e)*noFlyIndex.lat2(e) - noFlyIndex.lng2(e)*noFlyIndex.lat1(e);
+			}
+			var outwards = area2 > 0 ? 1 : -1;
+			//the corner starting side e is pushed along the sum of the outward normals of side e and the side before it
+			for(var e=first; e<=last; e++) {
+				var before = e == first ? last : e-1;
+				var normalLng = outwards*(unitNormalLng(before) + unitNormalLng(e));
+				var normalLat = outwards*(unitNormalLat(before) + unitNormalLat(e));
+				var normalLength = Math.hypot(normalLng, normalLat);
+				if(normalLength < 1e-9) { //the two sides double back on each other
+					continue;
+				}
+				var lng = noFlyIndex.lng1(e) + margin*normalLng/normalLength;
+				var lat = noFlyIndex.lat1(e) + margin*normalLat/normalLength;
+				if(DroneConstraints.withinArea(lng, lat) && noFlyIndex.insideAnyBuilding(lng, lat) == false) {
+					lngs[numVertices] = lng;
+					lats[numVertices] = lat;
+					numVertices++;
+				}
+			}
+		}
+		vertexLng = Arrays.copyOf(lngs, numVertices);
+		vertexLat = Arrays.copyOf(lats, numVertices);
+		visible = new boolean[numVertices][numVertices];
+		for(var u=0; u<numVertices; u++) {
+			for(var v=u+1; v<numVertices; v++) {
+				visible[u][v] = noFlyIndex.noIntersections(vertexLng[u], vertexLat[u], vertexLng[v], vertexLat[v]);
+				visible[v][u] = visible[u][v];
+			}
+		}
+	}
+
+	//returns the longitude of the unit normal of side e, on its right hand side
+	private double unitNormalLng(int e) {
+		var dLng = noFlyIndex.lng2(e) - noFlyIndex.lng1(e);
+		var dLat = noFlyIndex.lat2(e) - noFlyIndex.lat1(e);
+		return dLat/Math.hypot(dLng, dLat);
+	}
+
+	//returns the latitude of the unit normal of side e, on its right hand side
+	private double unitNormalLat(int e) {
+		var dLng = noFlyIndex.lng2(e) - noFlyIndex.lng1(e);
+		var dLat = noFlyIndex.lat2(e) - noFlyIndex.lat1(e);
+		return -dLng/Math.hypot(dLng, dLat);
+	}
+
+	//returns the number of corners in the visibility graph
+	public int numVertices() {
+		return vertexLng.length;
+	}
+
+	//returns True if a move from (fromLng, fromLat) to (toLng, toLat) ends in the area and crosses no building
+	public boolean legalMove(double fromLng, double fromLat, double toLng, double toLat) {
+		return DroneConstraints.withinArea(toLng, toLat) && noFlyIndex.noIntersections(fromLng, fromLat, toLng, toLat);
+	}
+
+	//returns the shortest way from (fromLng, fromLat) to (toLng, toLat) which crosses no building, as the longitude and latitude
+	//of each of its points in turn, both ends included, or null if there is no such way
+	public double[] path(double fromLng, double fromLat, double toLng, double toLat) {
+		if(noFlyIndex.noIntersections(fromLng, fromLat, toLng, toLat)) {
+			return new double[] {fromLng, fromLat, toLng, toLat};
+		}
+		//nodes 0 to numVertices-1 are the corners, then come the start and the goal
+		var numVertices = numVertices();
+		var start = numVertices;
+		var goal = numVertices + 1;
+		var numNodes = numVertices + 2;
+		var lng = Arrays.copyOf(vertexLng, numNodes);
+		var lat = Arrays.copyOf(vertexLat, numNodes);
+		lng[start] = fromLng;
+		lat[start] = fromLat;
+		lng[goal] = toLng;
+		lat[goal] = toLat;
+		var seesStart = new boolean[numVertices];
+		var seesGoal = new boolean[numVertices];
+		for(var v=0; v<numVertices; v++) {
+			seesStart[v] = noFlyIndex.noIntersections(fromLng, fromLat, vertexLng[v], vertexLat[v]);
+			seesGoal[v] = noFlyIndex.noIntersections(vertexLng[v], vertexLat[v], toLng, toLat);
+		}
+
+		var dist = new double[numNodes]; //length of the shortest way found so far from the start
+		var cameFrom = new int[numNodes];
+		var closed = new boolean[numNodes];
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		Arrays.fill(cameFrom, -1);
+		dist[start] = 0;
+		while(true) {
+			//the open node with the least dist plus straight distance to the goal (the graph is small, so a scan is enough)
+			var u = -1;
+			var best = Double.POSITIVE_INFINITY;
+			for(var v=0; v<numNodes; v++) {
+				if(closed[v] == false && dist[v] < Double.POSITIVE_INFINITY) {
+					var estimate = dist[v] + FlightMath.dist(lng[v], lat[v], toLng, toLat);
+					if(estimate < best) {
+						best = estimate;
+						u = v;
+					}
+				}
+			}
+			if(u == -1) {
+				return null;
+			}
+			if(u == goal) {
+				break;
+			}
+			closed[u] = true;
+			for(var v=0; v<numNodes; v++) {
+				if(closed[v] || v == start) {
+					continue;
+				}
+				boolean edge;
+				if(v == goal) {
+					edge = u != start && seesGoal[u];
+				}
+				else {
+					edge = u == start ? seesStart[v] : visible[u][v];
+				}
+				if(edge) {
+					var newDist = dist[u] + FlightMath.dist(lng[u], lat[u], lng[v], lat[v]);
+					if(newDist < dist[v]) {
+						dist[v] = newDist;
+						cameFrom[v] = u;
+					}
+				}
+			}
+		}
+
+		var numPoints = 1;
+		for(var v=goal; v!=start; v=cameFrom[v]) {
+			numPoints++;
+		}
+		var path = new double[2*numPoints];
+		var i = numPoints - 1;
+		for(var v=goal; v!=-1; v=cameFrom[v], i--) {
+			path[2*i] = lng[v];
+			path[2*i+1] = lat[v];
+		}
+		return path;
+	}
+
+	//returns the length of the part of a path (as returned by path) from its i-th point onwards
+	private static double remainingLength(double[] path, int i) {
+		var length = 0.0;
+		for(var j=2*i; j+3<path.length; j+=2) {
+			length += FlightMath.dist(path[j+2], path[j+3], path[j], path[j+1]);
+		}
+		return length;
+	}
+
+	//returns the position after the next move from (fromLng, fromLat) towards (toLng, toLat) as {lng, lat, direction}
+	//as soon as one or two moves can end within goalRange of the goal, the move is the first of the ones ending closest to it
+	//otherwise it is the legal move, in any of the 36 directions, which leaves the least distance to go along the shortest way
+	//returns null if no legal move can be found
+	public double[] nextMove(double fromLng, double fromLat, double toLng, double toLat, double goalRange) {
+		var toGo = FlightMath.dist(toLng, toLat, fromLng, fromLat);
+		if(toGo < 2*DroneConstraints.r + goalRange) {
+			var closing = closingMove(fromLng, fromLat, toLng, toLat, goalRange);
+			if(closing != null) {
+				return closing;
+			}
+		}
+
+		var path = path(fromLng, fromLat, toLng, toLat);
+		if(path == null) {
+			return null;
+		}
+		//the next point of the path, and the one after it if there is one
+		var numPoints = path.length/2;
+		var rest1 = remainingLength(path, 1);
+		var rest2 = numPoints > 2 ? remainingLength(path, 2) : 0;
+		double[] best = null;
+		var bestToGo = Double.POSITIVE_INFINITY;
+		for(var d=0; d<FlightMath.numDirs; d++) {
+			var lng = fromLng + FlightMath.stepLng(d);
+			var lat = fromLat + FlightMath.stepLat(d);
+			if(legalMove(fromLng, fromLat, lng, lat) == false) {
+				continue;
+			}
+			var moveToGo = FlightMath.dist(path[2], path[3], lng, lat) + rest1;
+			if(numPoints > 2 && noFlyIndex.noIntersections(lng, lat, path[4], path[5])) { //the move has already gone round the next corner
+				moveToGo = Math.min(moveToGo, FlightMath.dist(path[4], path[5], lng, lat) + rest2);
+			}
+			if(moveToGo < bestToGo) {
+				bestToGo = moveToGo;
+				best = new double[] {lng, lat, d*10};
+			}
+		}
+		return best;
+	}
+
+	//returns the number of moves nextMove makes from (fromLng, fromLat) until it is within goalRange of (toLng, toLat),
+	//or -1 if it doesn't get there within maxMoves moves
+	public int countMoves(double fromLng, double fromLat, double toLng, double toLat, double goalRange, int maxMoves) {
+		var lng = fromLng;
+		var lat = fromLat;
+		var moves = 0;
+		while(FlightMath.dist(toLng, toLat, lng, lat) >= goalRange) {
+			if(moves == maxMoves) {
+				return -1;
+			}
+			var move = nextMove(lng, lat, toLng, toLat, goalRange);
+			if(move == null) {
+				return -1;
+			}
+			lng = move[0];
+			lat = move[1];
+			moves++;
+		}
+		return moves;
+	}
+
+	//returns the length of the shortest way from (fromLng, fromLat) to (toLng, toLat) which crosses no building, or infinity if there is none
+	public double pathLength(double fromLng, double fromLat, double toLng, double toLat) {
+		var path = path(fromLng, fromLat, toLng, toLat);
+		return path == null ? Double.POSITIVE_INFINITY : remainingLength(path, 0);
+	}
+
+	//returns the first of the one or (failing that) two legal moves which end closest to the goal and within goalRange of it,
+	//as in nextMove, or null if there are none
+	private double[] closingMove(double fromLng, double fromLat, double toLng, double toLat, double goalRange) {
+		double[] best = null;
+		var bestDist = goalRange;
+		for(var d=0; d<FlightMath.numDirs; d++) {
+			var lng = fromLng + FlightMath.stepLng(d);
+			var lat = fromLat + FlightMath.stepLat(d);
+			var dist = FlightMath.dist(toLng, toLat, lng, lat);
+			if(dist < bestDist && legalMove(fromLng, fromLat, lng, lat)) {
+				bestDist = dist;
+				best = new double[] {lng, lat, d*10};
+			}
+		}
+		if(best != null) {
+			return best;
+		}
+		for(var d1=0; d1<FlightMath.numDirs; d1++) {
+			var lng1 = fromLng + FlightMath.stepLng(d1);
+			var lat1 = fromLat + FlightMath.stepLat(d1);
+			if(FlightMath.dist(toLng, toLat, lng1, lat1) >= DroneConstraints.r + goalRange || legalMove(fromLng, fromLat, lng1, lat1) == false) {
+				continue;
+			}
+			for(var d2=0; d2<FlightMath.numDirs; d2++) {
+				var lng2 = lng1 + FlightMath.stepLng(d2);
+				var lat2 = lat1 + FlightMath.stepLat(d2);
+				var dist = FlightMath.dist(toLng, toLat, lng2, lat2);
+				if(dist < bestDist && legalMove(lng1, lat1, lng2, lat2)) {
+					bestDist = dist;
+					best = new double[] {lng1, lat1, d1*10};
+				}
+			}
+		}
+		return best;
+	}
+
+}
@@ -0,0 +1,150 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+//a stand-in for the coursework's web server, serving the maps, words and buildings files of a content source
+//(usually a ZipContentSource over WebServer.zip) on localhost, such that the fetch layer can be tested and measured on one machine
+//every response can be held back by a fixed latency plus a random jitter, and can be replaced by an error at a given rate
+//the faults of a request are drawn from the seed, the url segment and the number of times that segment has been requested before,
+//such that a run makes the same faults however its requests are interleaved across threads
+public final class LocalWebServer implements AutoCloseable {
+	//the status of an injected error, the one the real server gives when it is overloaded
+	public final static int injectedErrorStatus = 503;
+
+	//the delays and errors added to the responses
+	public static final class Faults {
+		final long latencyMillis; //added to every response
+		final long jitterMillis; //up to this much more is added, drawn uniformly
+		final double errorRate; //the fraction of requests answered with injectedErrorStatus
+		final long seed;
+
+		public Faults(long latencyMillis, long jitterMillis, double errorRate, long seed) {
+			if(latencyMillis < 0 || jitterMillis < 0 || errorRate < 0 || errorRate > 1) {
+				throw new IllegalArgumentException("Latency and jitter must not be negative and the error rate must be between 0 and 1");
+			}
+			this.latencyMillis = latencyMillis;
+			this.jitterMillis = jitterMillis;
+			this.errorRate = errorRate;
+			this.seed = seed;
+		}
+
+		//returns the faults of a server which answers every request at once and correctly
+		public static Faults none() {
+			return new Faults(0, 0, 0, 0);
+		}
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final ContentSource source;
+	private final Faults faults;
+	private final ConcurrentHashMap<String, AtomicInteger> timesRequested = new ConcurrentHashMap<String, AtomicInteger>();
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errorsInjected = new LongAdder();
+
+	private LocalWebServer(HttpServer server, ExecutorService executor, ContentSource source, Faults faults) {
+		this.server = server;
+		this.executor = executor;
+		this.source = source;
+		this.faults = faults;
+	}
+
+	//starts serving source on localhost at port (0 for any free port), answering up to threads requests at once,
+	//such that the latency of one request doesn't hold up the others
+	public static LocalWebServer start(ContentSource source, int port, Faults faults, int threads) throws IOException {
+		var server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		var executor = Executors.newFixedThreadPool(Math.max(1, threads), (runnable) -> {
+			var thread = new Thread(runnable, "local-web-server");
+			thread.setDaemon(true);
+			return thread;
+		});
+		var localServer = new LocalWebServer(server, executor, source, faults);
+		server.createContext("/", localServer::handle);
+		server.setExecutor(executor);
+		server.start();
+		return localServer;
+	}
+
+	//returns the port the server is listening on
+	public int port() {
+		return server.getAddress().getPort();
+	}
+
+	//returns the number of requests received so far
+	public long requests() {
+		return requests.sum();
+	}
+
+	//returns the number of requests answered with an injected error so far
+	public long errorsInjected() {
+		return errorsInjected.sum();
+	}
+
+	//answers one request, after its latency, with its file, an injected error, or 404 if there is no such file
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			requests.increment();
+			var urlSegment = exchange.getRequestURI().getPath();
+			var random = randomFor(urlSegment);
+			var delay = faults.latencyMillis + (faults.jitterMillis == 0 ? 0 : random.nextLong(faults.jitterMillis + 1));
+			var injectError = faults.errorRate > 0 && random.nextDouble() < faults.errorRate;
+			if(delay > 0) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return; //the server is stopping
+				}
+			}
+			if(injectError) {
+				errorsInjected.increment();
+				respond(exchange, injectedErrorStatus, "Injected error");
+				return;
+			}
+			try {
+				respond(exchange, 200, source.webServerContent(urlSegment));
+			} catch (FileNotFoundException e) {
+				respond(exchange, 404, "Not found: " + urlSegment);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (RuntimeException e) {
+				respond(exchange, 500, "Server error: " + e);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	//returns the random numbers deciding the faults of the next request of urlSegment
+	private SplittableRandom randomFor(String urlSegment) {
+		var attempt = timesRequested.computeIfAbsent(urlSegment, (s) -> new AtomicInteger()).getAndIncrement();
+		return new SplittableRandom(faults.seed ^ (31L*urlSegment.hashCode() + attempt) * 0x9E3779B97F4A7C15L);
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		var bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, bytes.length);
+		exchange.getResponseBody().write(bytes);
+	}
+
+	//stops listening, abandoning any requests still being answered
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+}
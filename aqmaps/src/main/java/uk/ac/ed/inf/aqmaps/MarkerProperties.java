@@ -1,6 +1,6 @@
 package uk.ac.ed.inf.aqmaps;
 
-public class MarkerProperties extends SensorLocation{
+public class MarkerProperties {
 	//returns the RGB string corresponding to inputed sensor reading and battery
 	public static String getColour(String sensorReading, double sensorBattery) {
 		var colour = "#aaaaaa"; //default return value is RGB string corresponding to 'not visited' sensor to show incorrect data
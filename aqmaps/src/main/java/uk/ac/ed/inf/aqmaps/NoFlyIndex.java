@@ -0,0 +1,265 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.mapbox.geojson.Point;
+
+//the sides of every building in the no-fly zones, prepared once per run such that avoiding them needs no further requests
+//edge e joins (lng1[e], lat1[e]) to (lng2[e], lat2[e]) and belongs to building[e]; edges are held in the order of the no-fly GeoJSON
+public final class NoFlyIndex {
+	private final static RunMetrics metrics = RunMetrics.shared();
+
+	private final double[] lng1;
+	private final double[] lat1;
+	private final double[] lng2;
+	private final double[] lat2;
+	private final int[] building;
+
+	private final int[] firstEdge; //edges of building b are firstEdge[b] to firstEdge[b+1]-1
+	private final double[] centreLng;
+	private final double[] centreLat;
+	private final double[] minLng; //bounding box of each building
+	private final double[] maxLng;
+	private final double[] minLat;
+	private final double[] maxLat;
+	private final EdgeGrid grid;
+
+	private NoFlyIndex(List<List<List<Point>>> noFlyZonesCoords) {
+		var numBuildings = noFlyZonesCoords.size();
+		var numEdges = 0;
+		for(var i=0; i<numBuildings; i++) {
+			numEdges += noFlyZonesCoords.get(i).size();
+		}
+		lng1 = new double[numEdges];
+		lat1 = new double[numEdges];
+		lng2 = new double[numEdges];
+		lat2 = new double[numEdges];
+		building = new int[numEdges];
+		firstEdge = new int[numBuildings + 1];
+		centreLng = new double[numBuildings];
+		centreLat = new double[numBuildings];
+		minLng = new double[numBuildings];
+		maxLng = new double[numBuildings];
+		minLat = new double[numBuildings];
+		maxLat = new double[numBuildings];
+
+		var e = 0;
+		for(var i=0; i<numBuildings; i++) {
+			var coordPairs = noFlyZonesCoords.get(i);
+			var numPairs = coordPairs.size();
+			firstEdge[i] = e;
+			minLng[i] = Double.POSITIVE_INFINITY;
+			maxLng[i] = Double.NEGATIVE_INFINITY;
+			minLat[i] = Double.POSITIVE_INFINITY;
+			maxLat[i] = Double.NEGATIVE_INFINITY;
+			var sumLng = 0.0;
+			var sumLat = 0.0;
+			for(var j=0; j<numPairs; j++, e++) {
+				var coord1 = coordPairs.get(j).get(0);
+				var coord2 = coordPairs.get(j).get(1);
+				lng1[e] = coord1.longitude();
+				lat1[e] = coord1.latitude();
+				lng2[e] = coord2.longitude();
+				lat2[e] = coord2.latitude();
+				building[e] = i;
+				minLng[i] = Math.min(minLng[i], Math.min(lng1[e], lng2[e]));
+				maxLng[i] = Math.max(maxLng[i], Math.max(lng1[e], lng2[e]));
+				minLat[i] = Math.min(minLat[i], Math.min(lat1[e], lat2[e]));
+				maxLat[i] = Math.max(maxLat[i], Math.max(lat1[e], lat2[e]));
+				sumLng += lng1[e]; //each corner of the building starts exactly one side
+				sumLat += lat1[e];
+			}
+			centreLng[i] = sumLng/numPairs;
+			centreLat[i] = sumLat/numPairs;
+		}
+		firstEdge[numBuildings] = e;
+		grid = new EdgeGrid(lng1, lat1, lng2, lat2);
+	}
+
+	//returns the index of the sides given as pairs of coordinates, one list of pairs per building (as returned by noFlyZoneCoordPairs)
+	public static NoFlyIndex fromCoordPairs(List<List<List<Point>>> noFlyZonesCoords) {
+		return new NoFlyIndex(noFlyZonesCoords);
+	}
+
+	//returns the index of the no-fly zones read from the given content source
+	public static NoFlyIndex load(ContentSource source) throws IOException, InterruptedException {
+		return fromCoordPairs(NoFlyZones.noFlyZoneCoordPairs(source));
+	}
+
+	//returns a 64-bit FNV-1a hash of the sides of every building, equal for any two indexes of the same no-fly zones,
+	//such that anything worked out from the buildings can be kept and known to still hold
+	public long geometryHash() {
+		var hash = 0xcbf29ce484222325L;
+		for(var e=0; e<numEdges(); e++) {
+			for(var value : new long[] {building[e], Double.doubleToLongBits(lng1[e]), Double.doubleToLongBits(lat1[e]),
+					Double.doubleToLongBits(lng2[e]), Double.doubleToLongBits(lat2[e])}) {
+				for(var shift=0; shift<64; shift+=8) {
+					hash = (hash ^ (value >>> shift & 0xff)) * 0x100000001b3L;
+				}
+			}
+		}
+		return hash;
+	}
+
+	//returns the number of building sides
+	public int numEdges() {
+		return building.length;
+	}
+
+	//returns the number of buildings
+	public int numBuildings() {
+		return centreLng.length;
+	}
+
+	//returns the building which side e belongs to
+	public int building(int e) {
+		return building[e];
+	}
+
+	//returns the first coordinate of side e
+	public Point edgeStart(int e) {
+		return Point.fromLngLat(lng1[e], lat1[e]);
+	}
+
+	//returns the second coordinate of side e
+	public Point edgeEnd(int e) {
+		return Point.fromLngLat(lng2[e], lat2[e]);
+	}
+
+	//returns the longitude of the first coordinate of side e
+	public double lng1(int e) {
+		return lng1[e];
+	}
+
+	//returns the latitude of the first coordinate of side e
+	public double lat1(int e) {
+		return lat1[e];
+	}
+
+	//returns the longitude of the second coordinate of side e
+	public double lng2(int e) {
+		return lng2[e];
+	}
+
+	//returns the latitude of the second coordinate of side e
+	public double lat2(int e) {
+		return lat2[e];
+	}
+
+	//returns the centre of building b, which is the average of all points defining it
+	public Point centre(int b) {
+		return Point.fromLngLat(centreLng[b], centreLat[b]);
+	}
+
+	//returns True if the line from (fromLng, fromLat) to (toLng, toLat) intersects with side e
+	private boolean crosses(int e, double fromLng, double fromLat, double toLng, double toLat) {
+		return NoFlyZones.noIntersection(fromLng, fromLat, toLng, toLat, lng1[e], lat1[e], lng2[e], lat2[e]) == false;
+	}
+
+	//returns the sides which the line joining the drone's current and next position intersects with, in index order
+	//only the sides in the grid cells the line passes through are tested
+	public int[] intersectingEdges(Point droneCurr, Point droneNext) {
+		var fromLng = droneCurr.longitude();
+		var fromLat = droneCurr.latitude();
+		var toLng = droneNext.longitude();
+		var toLat = droneNext.latitude();
+		var candidates = grid.candidates(fromLng, fromLat, toLng, toLat);
+		var found = new int[numEdges()];
+		var numFound = 0;
+		var tests = 0;
+		for(var w=0; w<candidates.length; w++) {
+			for(var bits=candidates[w]; bits!=0; bits &= bits-1) {
+				var e = (w << 6) + Long.numberOfTrailingZeros(bits);
+				tests++;
+				if(crosses(e, fromLng, fromLat, toLng, toLat)) {
+					found[numFound++] = e;
+				}
+			}
+		}
+		metrics.recordIntersectionQuery(tests);
+		return Arrays.copyOf(found, numFound);
+	}
+
+	//returns True if the line joining the drone's current and next position does not intersect with any side of any building
+	public boolean noIntersections(Point droneCurr, Point droneNext) {
+		return noIntersections(droneCurr.longitude(), droneCurr.latitude(), droneNext.longitude(), droneNext.latitude());
+	}
+
+	//as above, given the longitudes and latitudes of the two positions
+	public boolean noIntersections(double fromLng, double fromLat, double toLng, double toLat) {
+		var tests = sidesTested(fromLng, fromLat, toLng, toLat);
+		metrics.recordIntersectionQuery(Math.abs(tests));
+		return tests >= 0;
+	}
+
+	//as above, without counting the test in the run metrics, for the bulk tests of building the lattice of DistanceFields,
+	//which are made once per set of buildings and would otherwise swamp the counts of the flights planned
+	boolean noIntersectionsUncounted(double fromLng, double fromLat, double toLng, double toLat) {
+		return sidesTested(fromLng, fromLat, toLng, toLat) >= 0;
+	}
+
+	//returns the number of sides tested against the line from (fromLng, fromLat) to (toLng, toLat), negated if it crosses one
+	//the sides are tested until one is crossed
+	private int sidesTested(double fromLng, double fromLat, double toLng, double toLat) {
+		var candidates = grid.candidates(fromLng, fromLat, toLng, toLat);
+		var tests = 0;
+		for(var w=0; w<candidates.length; w++) {
+			for(var bits=candidates[w]; bits!=0; bits &= bits-1) {
+				tests++;
+				if(crosses((w << 6) + Long.numberOfTrailingZeros(bits), fromLng, fromLat, toLng, toLat)) {
+					return -tests;
+				}
+			}
+		}
+		return tests;
+	}
+
+	//returns the first side of building b; its sides are firstEdge(b) to firstEdge(b+1)-1, in the order they go round it
+	public int firstEdge(int b) {
+		return firstEdge[b];
+	}
+
+	//returns True if (lng, lat) lies inside building b, counting a ray from it crossing the building's sides
+	public boolean insideBuilding(int b, double lng, double lat) {
+		if(lng < minLng[b] || lng > maxLng[b] || lat < minLat[b] || lat > maxLat[b]) {
+			return false;
+		}
+		var inside = false;
+		for(var e=firstEdge[b]; e<firstEdge[b+1]; e++) {
+			if((lat1[e] > lat) != (lat2[e] > lat)
+					&& lng < lng1[e] + (lat-lat1[e])*(lng2[e]-lng1[e])/(lat2[e]-lat1[e])) {
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+
+	//returns True if (lng, lat) lies inside any building
+	public boolean insideAnyBuilding(double lng, double lat) {
+		for(var b=0; b<numBuildings(); b++) {
+			if(insideBuilding(b, lng, lat)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//returns the sides which the line intersects with by testing every side, which the grid's answers must always equal
+	int[] intersectingEdgesBruteForce(Point droneCurr, Point droneNext) {
+		var fromLng = droneCurr.longitude();
+		var fromLat = droneCurr.latitude();
+		var toLng = droneNext.longitude();
+		var toLat = droneNext.latitude();
+		var found = new int[numEdges()];
+		var numFound = 0;
+		for(var e=0; e<numEdges(); e++) {
+			if(crosses(e, fromLng, fromLat, toLng, toLat)) {
+				found[numFound++] = e;
+			}
+		}
+		return Arrays.copyOf(found, numFound);
+	}
+
+}
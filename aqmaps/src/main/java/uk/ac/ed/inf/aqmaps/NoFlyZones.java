@@ -8,17 +8,16 @@ import com.mapbox.geojson.FeatureCollection;
 import com.mapbox.geojson.Point;
 import com.mapbox.geojson.Polygon;
 
-public class NoFlyZones extends MarkerProperties{
+public class NoFlyZones {
 	
 	
 	//returns the gradient (m) of a line, given two Points that lie on it
 	public static double getGradient(Point p1, Point p2) {
-		var p1Lat = p1.latitude();
-		var p1Lon = p1.longitude();
-		
-		var p2Lat = p2.latitude();
-		var p2Lon = p2.longitude();
-		
+		return getGradient(p1.longitude(), p1.latitude(), p2.longitude(), p2.latitude());
+	}
+	
+	//as above, given the longitudes and latitudes of the two points
+	private static double getGradient(double p1Lon, double p1Lat, double p2Lon, double p2Lat) {
 		var m = (p1Lat-p2Lat)/(p1Lon-p2Lon);
 		return m;
 	}
@@ -26,89 +25,35 @@ public class NoFlyZones extends MarkerProperties{
 	
 	//returns the y-intercept (c) of a line, given two Points that lie on it
 	public static double getYint(Point p1, Point p2) {
-		var m = getGradient(p1,p2);
-		
-		var p1Lat = p1.latitude();
-		var p1Lon = p1.longitude();
-		
-		var c = p1Lat-(m*p1Lon);
-		return c;
-	}
-	
-	//returns the x coordinate of where the drone path intersects with a side of a building
-	private static double getIntersectionX(double droneYint, double buildingSideYint, double droneGrad, double buildingSideGrad) {
-		var x = (droneYint - buildingSideYint) / (buildingSideGrad - droneGrad);
-		return x;
-	}
-	
-	//returns the y coordinate of where the drone path intersects with a side of a building
-	private static double getIntersectionY(double droneYint, double buildingSideYint, double droneGrad, double buildingSideGrad) {
-		var x = getIntersectionX(droneYint, buildingSideYint, droneGrad, buildingSideGrad);
-		var y = droneGrad*x + droneYint;
-		return y;
+		return getYint(p1.longitude(), p1.latitude(), p2.longitude(), p2.latitude());
 	}
 	
-	//returns the point where the drone path intersects with a side of a building
-	public static Point getIntersection(double droneYint, double buildingSideYint, double droneGrad, double buildingSideGrad) {
-		var x = getIntersectionX(droneYint, buildingSideYint, droneGrad, buildingSideGrad);
-		var y = getIntersectionY(droneYint, buildingSideYint, droneGrad, buildingSideGrad);
-		return Point.fromLngLat(x, y);
+	//as above, given the longitudes and latitudes of the two points
+	private static double getYint(double p1Lon, double p1Lat, double p2Lon, double p2Lat) {
+		var m = getGradient(p1Lon, p1Lat, p2Lon, p2Lat);
+		var c = p1Lat-(m*p1Lon);
+		return c;
 	}
 	
 	//returns True if the line joining the drone's current and next position does not intersect 
 	//with the line joining two coordinates (coord1 and coord2) defining a side of a building in the no fly zone
-	private static boolean noIntersection(Point droneCurr, Point droneNext, Point coord1, Point coord2) {		
-		var droneGrad = getGradient(droneCurr,droneNext);
-		var droneYint = getYint(droneCurr, droneNext);
-		
-		var buildingSideGrad = getGradient(coord1, coord2);
-		var buildingSideYint = getYint(coord1, coord2);
-		
-		var coord1Lon = coord1.longitude();
-		var coord2Lon = coord2.longitude();
-		
-		var xUB = Math.max(coord1Lon, coord2Lon); //largest x coordinate of the two (upper bound)
-		var xLB = Math.min(coord1Lon, coord2Lon); 
-		
-		var droneCurrLon = droneCurr.longitude();
-		var droneNextLon = droneNext.longitude();
-		
-		var droneLonUB = Math.max(droneCurrLon, droneNextLon);
-		var droneLonLB = Math.min(droneCurrLon, droneNextLon); //smallest longitude value of the drone's two positions (lower bound)
-		
-		var noIntersect = true; //initialised as true as the lines only intersect in the scenarios defined below
-		
-		if(droneGrad==buildingSideGrad && droneYint!=buildingSideYint) {
-			noIntersect = true; //lines don't intersect because they're parallel 
-		}
-		
-		else if(droneGrad==buildingSideGrad && droneYint==buildingSideYint) {
-			if(((droneLonLB<xLB && droneLonUB<=xUB) || (droneLonLB>=xLB && droneLonUB>xUB) || (droneLonLB<xLB && droneLonUB>xUB))) {
-				noIntersect = false; //lines fall onto each other, therefore intersect
-			}
-			else {
-				noIntersect = true; 
-			}	
-		}
-		
-		else {
-			var x = getIntersectionX(droneYint, buildingSideYint, droneGrad, buildingSideGrad); //x coordinate where the two lines intersect when extended 
-			
-			if(x<=xUB && x>=xLB && x<=droneLonUB && x>=droneLonLB) { 
-				noIntersect = false; //lines intersect because the x coordinate falls within the range of x values the specified side of the building and drone path have 
-			}
-			else {
-				noIntersect = true;
-			}
-		}
-		return noIntersect;	
+	private static boolean noIntersection(Point droneCurr, Point droneNext, Point coord1, Point coord2) {
+		return noIntersection(droneCurr.longitude(), droneCurr.latitude(), droneNext.longitude(), droneNext.latitude(),
+				coord1.longitude(), coord1.latitude(), coord2.longitude(), coord2.latitude());
+	}
+	
+	//as above, given the longitudes and latitudes of the four points
+	//touching a side, or flying along it, counts as intersecting with it
+	static boolean noIntersection(double droneCurrLon, double droneCurrLat, double droneNextLon, double droneNextLat,
+			double coord1Lon, double coord1Lat, double coord2Lon, double coord2Lat) {
+		return SegmentGeometry.segmentsIntersect(droneCurrLon, droneCurrLat, droneNextLon, droneNextLat, coord1Lon, coord1Lat, coord2Lon, coord2Lat) == false;
 	}
 	
 	
 	
 	//returns a list of lists of Points, where each list contains the Points defining one no-fly zone (one building) 
-	private static List<List<Point>> noFlyZoneCoords(String port) throws IOException, InterruptedException{
-		var jsonStr = webServerContent("/buildings/no-fly-zones.geojson", port);
+	private static List<List<Point>> noFlyZoneCoords(ContentSource source) throws IOException, InterruptedException{
+		var jsonStr = source.webServerContent("/buildings/no-fly-zones.geojson");
 		var featureCollection = FeatureCollection.fromJson(jsonStr);
 		var features = featureCollection.features();
 		var numOfFeatures = features.size();
@@ -131,8 +76,8 @@ public class NoFlyZones extends MarkerProperties{
 	
 		
 	//returns a list of the Points defining each no-fly zone, in pairs, each pair representing the two coordinates defining one side of that building
-	public static List<List<List<Point>>> noFlyZoneCoordPairs(String port) throws IOException, InterruptedException{
-		var allCoords = noFlyZoneCoords(port);
+	public static List<List<List<Point>>> noFlyZoneCoordPairs(ContentSource source) throws IOException, InterruptedException{
+		var allCoords = noFlyZoneCoords(source);
 		var numNoFlyZones = allCoords.size();
 		var coordPairs = new ArrayList<List<List<Point>>>();
 		for(var i=0; i<numNoFlyZones; i++) {
@@ -180,6 +125,7 @@ public class NoFlyZones extends MarkerProperties{
 	public static boolean noIntersections(Point droneCurr, Point droneNext, List<List<List<Point>>> noFlyZonesCoords) throws IOException, InterruptedException {
 		var numNoFlyZones = noFlyZonesCoords.size();
 		var noLinesIntersect = true;
+		var tests = 0;
 		OUTER_LOOP:
 			for(var i=0; i<numNoFlyZones;i++) {
 				var noFlyZonePairs = noFlyZonesCoords.get(i);
@@ -188,67 +134,16 @@ public class NoFlyZones extends MarkerProperties{
 					var coord1 = noFlyZonePairs.get(j).get(0);
 					var coord2 = noFlyZonePairs.get(j).get(1);
 					noLinesIntersect = noLinesIntersect && noIntersection(droneCurr, droneNext, coord1, coord2);
+					tests++;
 					if(noLinesIntersect == false) {
 						break OUTER_LOOP;
 					}
 				}	
 			}
+		RunMetrics.shared().recordIntersectionQuery(tests);
 		return noLinesIntersect;
 	}
 	
-	//returns the index of the building in the no-fly zones list which contains the inputed coordinates
-	public static int buildingIndex(Point coord1, String port) throws IOException, InterruptedException {
-		var allCoords = noFlyZoneCoords(port);
-		var numZones = allCoords.size();
-		var zone = 100;
-		OUTER_LOOP:
-			for(var i=0; i<numZones; i++) {
-				var coordsInZone = allCoords.get(i);
-				var numCoords = coordsInZone.size();
-				for(var j=0; j<numCoords; j++) {
-					if(coord1.equals(coordsInZone.get(j))) {
-						zone = i;
-						break OUTER_LOOP;
-					}
-				}
-			}
-		return zone;
-
-	}
-	
-	//returns the sum of two points
-	private static Point sumPoints(Point point1, Point point2) {
-	var point1Lon = point1.longitude();
-	var point1Lat = point1.latitude();
-	var point2Lon = point2.longitude();
-	var point2Lat = point2.latitude();
-	return Point.fromLngLat(point1Lon+point2Lon, point1Lat+point2Lat);
-	}
-	
-	//given the summed points and number of coordinates which were summed, returns the average point
-	private static Point averagePoint(Point pointsSummed, int numCoordsInZone) {
-		var averageLat = pointsSummed.latitude()/numCoordsInZone;
-		var averageLon = pointsSummed.longitude()/numCoordsInZone;
-		return Point.fromLngLat(averageLon, averageLat);
-	}
-	
-	//returns the centre of each building, which is the average of all points defining it 
-	public static List<Point> buildingCentres(String port) throws IOException, InterruptedException{
-		var allCoords = noFlyZoneCoords(port);
-		var numZones = allCoords.size();
-		var centres = new ArrayList<Point>();
-		for(var i=0; i<numZones; i++) {
-			var coordsInZone = allCoords.get(i);
-			var numCoordsInZone = coordsInZone.size();
-			var zoneCentre = coordsInZone.get(0);
-			for(var j=1; j<numCoordsInZone-1; j++) { //don't account for last coordinate in each no fly zone as it is a duplicate of the first coordinate 
-				zoneCentre = sumPoints(zoneCentre,coordsInZone.get(j));
-			}
-			zoneCentre = averagePoint(zoneCentre,numCoordsInZone-1);
-			centres.add(zoneCentre);
-		}
-		return centres;
-	}
 
  
 
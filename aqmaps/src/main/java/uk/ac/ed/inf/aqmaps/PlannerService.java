@@ -0,0 +1,254 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.mapbox.geojson.Point;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+//a long-running planner answering requests for flights over HTTP on localhost, such that the no-fly zones, the days' snapshots
+//and the JIT-compiled planner are kept warm between flights rather than rebuilt by a fresh launch for each one
+//  GET /plan?date=dd-mm-yyyy&lat=..&lng=..&seed=..[&format=geojson|txt]
+//    answers the readings GeoJSON of the flight (whose first feature is the flightpath), or the flightpath text with format=txt,
+//    with the moves used and sensors visited in the X-Moves and X-Sensors-Visited headers; seed may be left out for the greedy tour
+//  GET /metrics
+//    answers the run metrics of the service so far as JSON
+//requests are answered on a pool of threads sharing the one planner, and concurrent requests for a day not yet loaded share one load
+public final class PlannerService implements AutoCloseable {
+	//strict, such that an impossible date such as 31-02-2020 is rejected rather than moved to the end of its month
+	private final static DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd-MM-uuuu").withResolverStyle(ResolverStyle.STRICT);
+	//the days whose snapshots are held, least recently used dropped first; a day's snapshot is a few kilobytes
+	public final static int defaultMaxDays = Integer.getInteger("aqmaps.serviceDays", 64);
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final ContentSource source;
+	private final SensorLocation locations;
+	private final DroneMovement planner;
+	private final LinkedHashMap<LocalDate, CompletableFuture<DaySnapshot>> snapshots;
+	private final LongAdder plansServed = new LongAdder();
+
+	private PlannerService(HttpServer server, ExecutorService executor, ContentSource source, SensorLocation locations, DroneMovement planner, int maxDays) {
+		this.server = server;
+		this.executor = executor;
+		this.source = source;
+		this.locations = locations;
+		this.planner = planner;
+		this.snapshots = new LinkedHashMap<LocalDate, CompletableFuture<DaySnapshot>>(16, 0.75f, true) { //access order, so the eldest day is the least recently used
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<LocalDate, CompletableFuture<DaySnapshot>> eldest) {
+				return size() > maxDays;
+			}
+		};
+	}
+
+	//starts answering requests on localhost at port (0 for any free port), up to threads at once, planning flights with planner
+	//over the data of source; each day's data is read the first time that day is asked for
+	public static PlannerService start(ContentSource source, SensorLocation locations, DroneMovement planner, int port, int threads, int maxDays) throws IOException {
+		var server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		var executor = Executors.newFixedThreadPool(Math.max(1, threads), (runnable) -> {
+			var thread = new Thread(runnable, "planner-service");
+			thread.setDaemon(true);
+			return thread;
+		});
+		var service = new PlannerService(server, executor, source, locations, planner, Math.max(1, maxDays));
+		server.createContext("/plan", service::handlePlan);
+		server.createContext("/metrics", service::handleMetrics);
+		server.setExecutor(executor);
+		server.start();
+		return service;
+	}
+
+	//as above, planning over the web server at webServerPort with the shared caches of responses, sensor coordinates and distance fields
+	//the no-fly zones are read before the service starts
+	public static PlannerService start(String webServerPort, int port, int threads) throws IOException, InterruptedException {
+		var source = ReadWebServer.forPort(webServerPort);
+		var planner = DroneMovement.withDistanceFields(NoFlyIndex.load(source));
+		return start(source, new SensorLocation(source, WordsCoordCache.shared()), planner, port, threads, defaultMaxDays);
+	}
+
+	//returns the port the service is listening on
+	public int port() {
+		return server.getAddress().getPort();
+	}
+
+	//returns the number of flights planned and answered so far
+	public long plansServed() {
+		return plansServed.sum();
+	}
+
+	//returns the snapshot of date, loading it if it isn't held; a load which fails isn't held, such that the next request tries again
+	DaySnapshot snapshot(LocalDate date) throws IOException, InterruptedException {
+		CompletableFuture<DaySnapshot> snapshot;
+		var loader = false;
+		synchronized(snapshots) {
+			snapshot = snapshots.get(date);
+			if(snapshot == null) {
+				snapshot = new CompletableFuture<DaySnapshot>();
+				snapshots.put(date, snapshot);
+				loader = true;
+			}
+		}
+		if(loader) {
+			try {
+				snapshot.complete(DaySnapshot.load(source, locations, String.valueOf(date.getYear()),
+						String.format("%02d", date.getMonthValue()), String.format("%02d", date.getDayOfMonth())));
+			} catch (IOException | InterruptedException | RuntimeException e) {
+				synchronized(snapshots) {
+					snapshots.remove(date, snapshot);
+				}
+				snapshot.completeExceptionally(e);
+				throw e;
+			}
+		}
+		try {
+			return snapshot.get();
+		} catch (ExecutionException e) {
+			var cause = e.getCause();
+			if(cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException("Unable to load the data of " + date.format(dateFormat), cause);
+		}
+	}
+
+	//returns the parameters of the query of the request
+	private static Map<String, String> queryParameters(HttpExchange exchange) {
+		var parameters = new HashMap<String, String>();
+		var query = exchange.getRequestURI().getRawQuery();
+		if(query == null) {
+			return parameters;
+		}
+		for(var pair : query.split("&")) {
+			var equals = pair.indexOf('=');
+			if(equals > 0) {
+				parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+			}
+		}
+		return parameters;
+	}
+
+	//returns the parameter called name, which must be given
+	private static String required(Map<String, String> parameters, String name) {
+		var value = parameters.get(name);
+		if(value == null) {
+			throw new IllegalArgumentException("Missing parameter " + name);
+		}
+		return value;
+	}
+
+	//answers GET /plan with the plan of the flight asked for, 400 if the request is malformed or 502 if the day's data can't be read
+	private void handlePlan(HttpExchange exchange) throws IOException {
+		var aborted = false;
+		try {
+			if(exchange.getRequestMethod().equals("GET") == false) {
+				respond(exchange, 405, "Only GET is supported");
+				return;
+			}
+			LocalDate date;
+			Point initPos;
+			Long seed;
+			boolean txt;
+			try {
+				var parameters = queryParameters(exchange);
+				date = LocalDate.parse(required(parameters, "date"), dateFormat);
+				initPos = Point.fromLngLat(Double.parseDouble(required(parameters, "lng")), Double.parseDouble(required(parameters, "lat")));
+				seed = parameters.containsKey("seed") ? Long.valueOf(parameters.get("seed")) : null;
+				var format = parameters.getOrDefault("format", "geojson");
+				if(format.equals("geojson") == false && format.equals("txt") == false) {
+					throw new IllegalArgumentException("Unknown format " + format);
+				}
+				txt = format.equals("txt");
+				if(DroneConstraints.withinArea(initPos) == false) {
+					throw new IllegalArgumentException("The start position is outside the confinement area");
+				}
+			} catch (IllegalArgumentException | DateTimeException e) {
+				respond(exchange, 400, e.getMessage());
+				return;
+			}
+			FlightPlan plan;
+			try {
+				var snapshot = snapshot(date);
+				plan = seed == null ? planner.dronePath(snapshot, initPos) : planner.dronePath(snapshot, initPos, seed);
+			} catch (IOException e) {
+				respond(exchange, 502, e.getMessage());
+				return;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return; //the service is stopping
+			}
+			plansServed.increment();
+			var headers = exchange.getResponseHeaders();
+			headers.set("Content-Type", txt ? "text/plain; charset=utf-8" : "application/geo+json");
+			headers.set("X-Moves", String.valueOf(plan.numMoves()));
+			headers.set("X-Sensors-Visited", String.valueOf(plan.numVisited()));
+			exchange.sendResponseHeaders(200, 0); //the body is streamed as it is written
+			try (var out = new ChannelWriter(Channels.newChannel(exchange.getResponseBody()))) {
+				if(txt) {
+					WriteFlightpath.writeTxt(out, plan);
+				}
+				else {
+					WriteReadings.writeGeojson(out, plan);
+				}
+			}
+		} catch (RuntimeException e) {
+			if(exchange.getResponseCode() == -1) { //no headers sent yet
+				respond(exchange, 500, "Server error: " + e);
+			}
+			else {
+				//the headers of a 200 are already sent, so the error can't be answered; the exchange isn't closed, which would end
+				//the body as if it were whole, but the exception is passed on to the server, which drops the connection
+				System.err.println("Warning: failed while answering " + exchange.getRequestURI() + " (" + e + ").");
+				aborted = true;
+				throw e;
+			}
+		} finally {
+			if(aborted == false) {
+				exchange.close();
+			}
+		}
+	}
+
+	//answers GET /metrics with the run metrics so far
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		try {
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			respond(exchange, 200, RunMetrics.shared().getJson());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		var bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, bytes.length);
+		exchange.getResponseBody().write(bytes);
+	}
+
+	//stops listening, abandoning any requests still being answered
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+}
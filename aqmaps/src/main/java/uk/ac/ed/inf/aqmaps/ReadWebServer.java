@@ -1,28 +1,176 @@
 package uk.ac.ed.inf.aqmaps;
 
 import java.io.IOException;
+import java.net.ConnectException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 
-public class ReadWebServer {
-	//returns web server content, given the non-constant part of the url and port to receive it from
-	public static String webServerContent(String urlSegment, String port) throws IOException, InterruptedException {		
-		var client = HttpClient.newHttpClient(); 
-		
-		var request = HttpRequest.newBuilder()
+//reads content from the web server at localhost:port, answering repeated requests from a cache
+public class ReadWebServer implements ContentSource {
+	private final static int cacheSize = 512; //more than enough for one day's sensors, their word details and the no-fly zones
+	private final static long cacheTtlMillis = 30 * 60 * 1000; //a run is over well within this time
+	//maximum number of requests in flight at once when fetching several segments, overridable with -Daqmaps.fetchParallelism
+	public final static int defaultParallelism = Integer.getInteger("aqmaps.fetchParallelism", 8);
+
+	//one client for the whole run, such that connections to the web server are reused
+	private final static HttpClient client = HttpClient.newHttpClient();
+	private final static ConcurrentHashMap<String, ReadWebServer> servers = new ConcurrentHashMap<String, ReadWebServer>();
+	private final static RunMetrics metrics = RunMetrics.shared();
+
+	private final String port;
+	private final ResponseCache cache;
+	private final int parallelism;
+
+	public ReadWebServer(String port, ResponseCache cache, int parallelism) {
+		this.port = port;
+		this.cache = cache;
+		this.parallelism = parallelism;
+	}
+
+	//returns the reader of the web server at the given port, shared by everything in this run which reads from that port
+	public static ReadWebServer forPort(String port) {
+		return servers.computeIfAbsent(port, (p) -> new ReadWebServer(p, new ResponseCache(cacheSize, cacheTtlMillis), defaultParallelism));
+	}
+
+	//returns the port of the web server
+	public String port() {
+		return port;
+	}
+
+	//returns the cache holding the responses received so far
+	public ResponseCache responseCache() {
+		return cache;
+	}
+
+	//returns the request for the given non-constant part of the url
+	private HttpRequest request(String urlSegment) {
+		return HttpRequest.newBuilder()
 				.uri(URI.create("http://localhost:"+ port + urlSegment))
 				.build();
-		HttpResponse<String> response = null;
+	}
+
+	//returns the exception reporting that the web server couldn't be reached, caused by e
+	private ConnectException unreachable(Throwable e) {
+		var unreachable = new ConnectException("Unable to connect to server at port " + port);
+		unreachable.initCause(e);
+		return unreachable;
+	}
+
+	//returns the exception reporting that the web server answered urlSegment with an error page
+	private static IOException errorStatus(int statusCode, String urlSegment) {
+		return new IOException("Server answered " + statusCode + " for " + urlSegment);
+	}
+
+	//returns web server content, given the non-constant part of the url
+	//throws ConnectException if the server can't be reached, and IOException if it doesn't answer with 200
+	@Override
+	public String webServerContent(String urlSegment) throws IOException, InterruptedException {
+		var body = cache.get(urlSegment);
+		if(body != null) {
+			metrics.recordCacheHit();
+			return body;
+		}
+
+		var started = System.nanoTime();
+		HttpResponse<byte[]> response;
+		try {
+			response = client.send(request(urlSegment), BodyHandlers.ofByteArray());
+		} catch (ConnectException e) {
+			metrics.recordFetchError(System.nanoTime() - started);
+			throw unreachable(e);
+		}
+		if(response.statusCode() != 200) { //error pages aren't cached, such that they are requested again
+			metrics.recordFetchError(System.nanoTime() - started);
+			throw errorStatus(response.statusCode(), urlSegment);
+		}
+		metrics.recordFetch(System.nanoTime() - started, response.body().length);
+		body = new String(response.body(), StandardCharsets.UTF_8);
+		cache.put(urlSegment, body);
+		return body;
+	}
+
+	//returns a future of the web server content, which completes exceptionally if the server doesn't answer with 200
+	public CompletableFuture<String> webServerContentAsync(String urlSegment) {
+		var body = cache.get(urlSegment);
+		if(body != null) {
+			metrics.recordCacheHit();
+			return CompletableFuture.completedFuture(body);
+		}
+		var started = System.nanoTime();
+		return client.sendAsync(request(urlSegment), BodyHandlers.ofByteArray())
+				.whenComplete((response, e) -> {
+					if(e != null || response.statusCode() != 200) {
+						metrics.recordFetchError(System.nanoTime() - started);
+					}
+					else {
+						metrics.recordFetch(System.nanoTime() - started, response.body().length);
+					}
+				})
+				.thenApply(response -> {
+					if(response.statusCode() != 200) {
+						throw new CompletionException(errorStatus(response.statusCode(), urlSegment));
+					}
+					var responseBody = new String(response.body(), StandardCharsets.UTF_8);
+					cache.put(urlSegment, responseBody);
+					return responseBody;
+				});
+	}
+
+	//returns the web server content of every url segment, in the same order as the segments,
+	//with at most parallelism requests in flight at once; after the first failed request no more are sent and its failure is thrown
+	//at once, while those already sent are left to finish without being awaited, as the client can't abort an exchange under way
+	public List<String> webServerContents(List<String> urlSegments, int parallelism) throws IOException, InterruptedException {
+		var numSegments = urlSegments.size();
+		var permits = new Semaphore(Math.max(1, parallelism));
+		var firstFailure = new CompletableFuture<Void>();
+		var inFlight = new ArrayList<CompletableFuture<String>>(numSegments);
+		for(var i=0; i<numSegments && firstFailure.isDone()==false; i++) {
+			permits.acquire();
+			var future = webServerContentAsync(urlSegments.get(i));
+			inFlight.add(future);
+			future.whenComplete((body, e) -> {
+				permits.release();
+				if(e != null) {
+					firstFailure.completeExceptionally(e);
+				}
+			});
+		}
+		var allDone = CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0]));
 		try {
-			response = client.send(request, BodyHandlers.ofString());
-		} catch (java.net.ConnectException e) {
-			System.out.println("Fatal error: Unable to connect to server at port " + port +".");
-			System.exit(1);
+			CompletableFuture.anyOf(allDone, firstFailure).get(); //throws as soon as one request fails
+		} catch (ExecutionException e) {
+			var cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+			if(cause instanceof ConnectException) {
+				throw unreachable(cause);
+			}
+			if(cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
 		}
-		return response.body();
+		//the bodies are taken from the futures themselves, which are all complete once allDone is
+		var bodies = new ArrayList<String>(numSegments);
+		for(var future : inFlight) {
+			bodies.add(future.join());
+		}
+		return bodies;
+	}
+
+	//as above, with this reader's cap on requests in flight
+	@Override
+	public List<String> webServerContents(List<String> urlSegments) throws IOException, InterruptedException {
+		return webServerContents(urlSegments, parallelism);
 	}
-	
+
 }
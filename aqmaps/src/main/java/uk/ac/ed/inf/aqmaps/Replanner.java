@@ -0,0 +1,144 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.mapbox.geojson.Point;
+
+//replans the rest of a flight already under way when the day changes: a sensor dies, a sensor is added or there are fewer moves left
+//the cost of a leg between two sensors, or from a sensor back to home, depends only on where they are and on the buildings,
+//so each is planned once and kept; a replan plans only the legs out of the drone's current position and those of sensors new to it,
+//and reuses the planner with its no-fly index and lattice, such that it takes milliseconds rather than a flight's full planning
+//a replanner belongs to the flights launched from one home, and can be used from several threads at once
+public final class Replanner {
+	private final static String homeKey = ""; //stands for home in the keys of legs, as no sensor's location is empty
+
+	private final DroneMovement planner;
+	private final Point home;
+	private final long seed;
+	private final int restarts;
+	private final long budgetMillis;
+	private final ConcurrentHashMap<String, Leg> legs = new ConcurrentHashMap<String, Leg>();
+
+	//the cost of a leg, as in LegCostMatrix
+	private static final class Leg{
+		final int moves;
+		final double length;
+
+		Leg(int moves, double length) {
+			this.moves = moves;
+			this.length = length;
+		}
+	}
+
+	//the tour of each replan is improved from the seed with the given number of restarts, within the time budget
+	public Replanner(DroneMovement planner, Point home, long seed, int restarts, long budgetMillis) {
+		this.planner = planner;
+		this.home = home;
+		this.seed = seed;
+		this.restarts = restarts;
+		this.budgetMillis = budgetMillis;
+	}
+
+	public Replanner(DroneMovement planner, Point home, long seed) {
+		this(planner, home, seed, TourOptimizer.defaultRestarts, TourOptimizer.defaultBudgetMillis);
+	}
+
+	//returns the number of legs planned and kept so far
+	public int cachedLegs() {
+		return legs.size();
+	}
+
+	//returns the leg from (fromLng, fromLat) to within goalRange of (toLng, toLat), planned now
+	private Leg planLeg(double fromLng, double fromLat, double toLng, double toLat, double goalRange) {
+		var moves = planner.legMoves(fromLng, fromLat, toLng, toLat, goalRange);
+		return new Leg(moves == -1 ? LegCostMatrix.unreachable : moves, planner.legPlanner().pathLength(fromLng, fromLat, toLng, toLat));
+	}
+
+	//returns the leg from the sensor at from to the sensor at to, or to home if to is homeKey, planning it if it hasn't been
+	//sensors are known by their locations, which name them for the whole day however often the day's data is reloaded
+	private Leg cachedLeg(String from, double fromLng, double fromLat, String to, double toLng, double toLat) {
+		var key = from + "|" + to;
+		var leg = legs.get(key);
+		if(leg == null) { //planned outside the map, such that other legs can be looked up meanwhile; a leg planned twice is planned the same
+			leg = planLeg(fromLng, fromLat, toLng, toLat, to.equals(homeKey) ? DroneConstraints.r : DroneMovement.getConnectRange());
+			legs.putIfAbsent(key, leg);
+		}
+		return leg;
+	}
+
+	//returns the costs of the legs of the rest of a flight from currentPos over the sensors of remaining and back to home
+	//the start node stands for currentPos in the legs out of it and for home in the legs into it
+	LegCostMatrix costs(DaySnapshot remaining, Point currentPos) {
+		var numSensors = remaining.size();
+		var size = numSensors + 1;
+		var moves = new int[size*size];
+		var lengths = new double[size*size];
+		for(var i=0; i<numSensors; i++) {
+			for(var j=0; j<numSensors; j++) {
+				if(i != j) {
+					var leg = cachedLeg(remaining.location(i), remaining.lng(i), remaining.lat(i), remaining.location(j), remaining.lng(j), remaining.lat(j));
+					moves[i*size + j] = leg.moves;
+					lengths[i*size + j] = leg.length;
+				}
+			}
+			var out = planLeg(currentPos.longitude(), currentPos.latitude(), remaining.lng(i), remaining.lat(i), DroneMovement.getConnectRange());
+			moves[numSensors*size + i] = out.moves;
+			lengths[numSensors*size + i] = out.length;
+			var back = cachedLeg(remaining.location(i), remaining.lng(i), remaining.lat(i), homeKey, home.longitude(), home.latitude());
+			moves[i*size + numSensors] = back.moves;
+			lengths[i*size + numSensors] = back.length;
+		}
+		return LegCostMatrix.of(size, moves, lengths);
+	}
+
+	//returns tour without the sensor whose leaving out saves the most moves
+	private static int[] withoutCostliest(int[] tour, LegCostMatrix costs) {
+		var start = costs.start();
+		var drop = 0;
+		var bestSaving = Integer.MIN_VALUE;
+		for(var k=0; k<tour.length; k++) {
+			var previous = k == 0 ? start : tour[k-1];
+			var next = k == tour.length-1 ? start : tour[k+1];
+			var saving = costs.moves(previous, tour[k]) + costs.moves(tour[k], next) - costs.moves(previous, next);
+			if(saving > bestSaving) {
+				bestSaving = saving;
+				drop = k;
+			}
+		}
+		var shorter = new int[tour.length-1];
+		System.arraycopy(tour, 0, shorter, 0, drop);
+		System.arraycopy(tour, drop+1, shorter, drop, tour.length-drop-1);
+		return shorter;
+	}
+
+	//returns True if the flight ended close enough to home to be over
+	private boolean endsAtHome(FlightState flight) {
+		return FlightMath.distSq(home.longitude(), home.latitude(), flight.lng(), flight.lat()) < DroneConstraints.r*DroneConstraints.r;
+	}
+
+	//returns the plan of the rest of the flight of a drone at currentPos with movesLeft moves left, over the sensors of remaining
+	//(those it has still to visit, including any new ones) in the order found by the tour optimizer, and back to home
+	//if the moves left can't cover them all, sensors are left out, the one whose leaving out saves the most moves first,
+	//such that a drone short of moves visits what it can and still gets home; the plan begins at currentPos
+	public FlightPlan replan(DaySnapshot remaining, Point currentPos, int movesLeft) {
+		var costs = costs(remaining, currentPos);
+		var optimizer = new TourOptimizer(costs, seed, restarts, budgetMillis);
+		var tour = optimizer.optimize();
+		while(tour.length > 0 && optimizer.cost(tour) > movesLeft) {
+			tour = withoutCostliest(tour, costs);
+		}
+		//the legs are costed from the sensors' exact positions, so a flight can take a few moves more than its tour's cost
+		var flight = planner.flyOn(remaining, currentPos, home, movesLeft, tour);
+		while(tour.length > 0 && endsAtHome(flight) == false) {
+			tour = withoutCostliest(tour, costs);
+			flight = planner.flyOn(remaining, currentPos, home, movesLeft, tour);
+		}
+		return FlightPlan.of(remaining, flight);
+	}
+
+	//as above, over the sensors of day at the indices given by stillToVisit
+	public FlightPlan replan(DaySnapshot day, int[] stillToVisit, Point currentPos, int movesLeft) {
+		return replan(day.subset(stillToVisit), currentPos, movesLeft);
+	}
+
+}
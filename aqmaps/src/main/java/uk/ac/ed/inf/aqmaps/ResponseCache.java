@@ -0,0 +1,77 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ResponseCache {
+	private final int maxEntries; //least recently used entries are evicted once this many responses are held
+	private final long ttlNanos; //entries older than this are treated as missing and fetched again
+	private final LinkedHashMap<String, CachedBody> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private static class CachedBody{
+		final String body;
+		final long storedAt;
+
+		CachedBody(String body, long storedAt) {
+			this.body = body;
+			this.storedAt = storedAt;
+		}
+	}
+
+	public ResponseCache(int maxEntries, long ttlMillis) {
+		this.maxEntries = maxEntries;
+		this.ttlNanos = ttlMillis * 1_000_000L;
+		this.entries = new LinkedHashMap<String, CachedBody>(16, 0.75f, true) { //access order, so the eldest entry is the least recently used
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedBody> eldest) {
+				return size() > ResponseCache.this.maxEntries;
+			}
+		};
+	}
+
+	//returns the cached body stored under key, or null if there is none or it has expired
+	public synchronized String get(String key) {
+		var entry = entries.get(key);
+		if(entry != null && System.nanoTime() - entry.storedAt > ttlNanos) {
+			entries.remove(key);
+			entry = null;
+		}
+		if(entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.body;
+	}
+
+	//stores the body under key, evicting the least recently used entry if the cache is full
+	public synchronized void put(String key, String body) {
+		entries.put(key, new CachedBody(body, System.nanoTime()));
+	}
+
+	//removes every cached body
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	//returns the number of bodies currently held
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	//returns the number of lookups answered from the cache
+	public long hits() {
+		return hits.get();
+	}
+
+	//returns the number of lookups which had to go to the web server
+	public long misses() {
+		return misses.get();
+	}
+
+}
@@ -0,0 +1,260 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+//counts where a run spends its time: the fetches from the web server, the tests of moves against the sides of the buildings,
+//the moves deflected off buildings and the flights planned
+//the counters are striped, such that the planner's threads can count without contending, and are shared by the whole run;
+//they are written to a JSON file at the end of a run and can be watched while it runs through JMX
+public final class RunMetrics implements RunMetricsMXBean {
+	public final static String objectName = "uk.ac.ed.inf.aqmaps:type=RunMetrics";
+	private final static RunMetrics shared = new RunMetrics();
+
+	//fetches from the web server
+	final LongAdder fetches = new LongAdder(); //every call, answered from the cache or not
+	final LongAdder fetchCacheHits = new LongAdder();
+	final LongAdder fetchErrors = new LongAdder(); //unreachable server or an answer other than 200
+	final LongAdder fetchBytes = new LongAdder(); //bytes of the bodies received over the network
+	final Histogram fetchNanos = new Histogram(); //time of the fetches which went over the network
+
+	//tests against the sides of the buildings
+	final LongAdder intersectionQueries = new LongAdder(); //moves tested against all the buildings
+	final LongAdder segmentTests = new LongAdder(); //sides tested, over all those moves
+
+	//moves deflected off buildings by avoidNoFlyZones, by the number of sides the move wanted crossed
+	final LongAdder avoidNoEdge = new LongAdder();
+	final LongAdder avoidOneEdge = new LongAdder();
+	final LongAdder avoidTwoEdges = new LongAdder();
+	final LongAdder avoidThreeOrMoreEdges = new LongAdder();
+
+	//flights planned by dronePath
+	final LongAdder flights = new LongAdder();
+	final LongAdder moves = new LongAdder();
+	final LongAdder sensorsHit = new LongAdder();
+	final LongAdder returnLegMoves = new LongAdder();
+	final Histogram movesPerFlight = new Histogram();
+
+	RunMetrics() {
+	}
+
+	//returns the metrics of this run
+	public static RunMetrics shared() {
+		return shared;
+	}
+
+	//makes the metrics of this run visible through JMX, if they aren't already
+	public static void registerMBean() {
+		try {
+			var server = ManagementFactory.getPlatformMBeanServer();
+			var name = new ObjectName(objectName);
+			if(server.isRegistered(name) == false) {
+				server.registerMBean(shared, name);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Unable to register the run metrics with JMX", e);
+		}
+	}
+
+	//counts a fetch answered from the cache
+	void recordCacheHit() {
+		fetches.increment();
+		fetchCacheHits.increment();
+	}
+
+	//counts a fetch over the network which took nanos and received a body of bytes bytes
+	void recordFetch(long nanos, int bytes) {
+		fetches.increment();
+		fetchNanos.record(nanos);
+		fetchBytes.add(bytes);
+	}
+
+	//counts a fetch which failed after nanos
+	void recordFetchError(long nanos) {
+		fetches.increment();
+		fetchErrors.increment();
+		fetchNanos.record(nanos);
+	}
+
+	//counts a move tested against the buildings by testing it against tests sides
+	void recordIntersectionQuery(int tests) {
+		intersectionQueries.increment();
+		segmentTests.add(tests);
+	}
+
+	//counts a move deflected off the buildings, which wanted to cross numEdges sides
+	void recordAvoid(int numEdges) {
+		switch(numEdges) {
+		case 0: avoidNoEdge.increment(); break;
+		case 1: avoidOneEdge.increment(); break;
+		case 2: avoidTwoEdges.increment(); break;
+		default: avoidThreeOrMoreEdges.increment();
+		}
+	}
+
+	//returns the moves of the way back of the flight of plan, those after the last sensor read (every move if none was)
+	static int returnLegMoves(FlightPlan plan) {
+		for(var k=plan.numMoves()-1; k>=0; k--) {
+			if(plan.sensorHit(k) != -1) {
+				return plan.numMoves()-1 - k;
+			}
+		}
+		return plan.numMoves();
+	}
+
+	//counts a flight planned; every count of a flight is taken here from its plan, such that they all count the same flights
+	//and not the trial flights of replanning or of ranking launch positions, which are never made into plans handed out
+	void recordFlight(FlightPlan plan) {
+		flights.increment();
+		moves.add(plan.numMoves());
+		sensorsHit.add(plan.numVisited());
+		returnLegMoves.add(returnLegMoves(plan));
+		movesPerFlight.record(plan.numMoves());
+	}
+
+	@Override
+	public long getFetches() {
+		return fetches.sum();
+	}
+
+	@Override
+	public long getFetchCacheHits() {
+		return fetchCacheHits.sum();
+	}
+
+	@Override
+	public long getFetchErrors() {
+		return fetchErrors.sum();
+	}
+
+	@Override
+	public long getFetchBytes() {
+		return fetchBytes.sum();
+	}
+
+	@Override
+	public double getFetchLatencyMeanMillis() {
+		return fetchNanos.mean() / 1e6;
+	}
+
+	@Override
+	public double getFetchLatencyP99Millis() {
+		return fetchNanos.percentile(0.99) / 1e6;
+	}
+
+	@Override
+	public long getIntersectionQueries() {
+		return intersectionQueries.sum();
+	}
+
+	@Override
+	public long getSegmentTests() {
+		return segmentTests.sum();
+	}
+
+	@Override
+	public long getAvoidNoEdge() {
+		return avoidNoEdge.sum();
+	}
+
+	@Override
+	public long getAvoidOneEdge() {
+		return avoidOneEdge.sum();
+	}
+
+	@Override
+	public long getAvoidTwoEdges() {
+		return avoidTwoEdges.sum();
+	}
+
+	@Override
+	public long getAvoidThreeOrMoreEdges() {
+		return avoidThreeOrMoreEdges.sum();
+	}
+
+	@Override
+	public long getFlights() {
+		return flights.sum();
+	}
+
+	@Override
+	public long getMoves() {
+		return moves.sum();
+	}
+
+	@Override
+	public long getSensorsHit() {
+		return sensorsHit.sum();
+	}
+
+	@Override
+	public long getReturnLegMoves() {
+		return returnLegMoves.sum();
+	}
+
+	//returns every metric, grouped as fetch, intersections, avoidNoFlyZones and dronePath
+	public JsonObject toJson() {
+		var fetch = new JsonObject();
+		fetch.addProperty("calls", getFetches());
+		fetch.addProperty("cacheHits", getFetchCacheHits());
+		fetch.addProperty("errors", getFetchErrors());
+		fetch.addProperty("bytes", getFetchBytes());
+		fetch.add("latencyNanos", fetchNanos.toJson());
+
+		var intersections = new JsonObject();
+		intersections.addProperty("queries", getIntersectionQueries());
+		intersections.addProperty("segmentTests", getSegmentTests());
+
+		var avoid = new JsonObject();
+		avoid.addProperty("noEdge", getAvoidNoEdge());
+		avoid.addProperty("oneEdge", getAvoidOneEdge());
+		avoid.addProperty("twoEdges", getAvoidTwoEdges());
+		avoid.addProperty("threeOrMoreEdges", getAvoidThreeOrMoreEdges());
+
+		var dronePath = new JsonObject();
+		dronePath.addProperty("flights", getFlights());
+		dronePath.addProperty("moves", getMoves());
+		dronePath.addProperty("sensorsHit", getSensorsHit());
+		dronePath.addProperty("returnLegMoves", getReturnLegMoves());
+		dronePath.add("movesPerFlight", movesPerFlight.toJson());
+
+		var json = new JsonObject();
+		json.add("fetch", fetch);
+		json.add("intersections", intersections);
+		json.add("avoidNoFlyZones", avoid);
+		json.add("dronePath", dronePath);
+		return json;
+	}
+
+	@Override
+	public String getJson() {
+		return toJson().toString();
+	}
+
+	//writes every metric as JSON to file
+	public void writeJson(Path file) throws IOException {
+		var json = new GsonBuilder().setPrettyPrinting().create().toJson(toJson());
+		Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public void reset() {
+		for(var adder : new LongAdder[] {fetches, fetchCacheHits, fetchErrors, fetchBytes, intersectionQueries, segmentTests,
+				avoidNoEdge, avoidOneEdge, avoidTwoEdges, avoidThreeOrMoreEdges, flights, moves, sensorsHit, returnLegMoves}) {
+			adder.reset();
+		}
+		fetchNanos.reset();
+		movesPerFlight.reset();
+	}
+
+}
@@ -0,0 +1,44 @@
+package uk.ac.ed.inf.aqmaps;
+
+//the run metrics as seen through JMX, under the name RunMetrics.objectName
+public interface RunMetricsMXBean {
+
+	long getFetches();
+
+	long getFetchCacheHits();
+
+	long getFetchErrors();
+
+	long getFetchBytes();
+
+	double getFetchLatencyMeanMillis();
+
+	double getFetchLatencyP99Millis();
+
+	long getIntersectionQueries();
+
+	long getSegmentTests();
+
+	long getAvoidNoEdge();
+
+	long getAvoidOneEdge();
+
+	long getAvoidTwoEdges();
+
+	long getAvoidThreeOrMoreEdges();
+
+	long getFlights();
+
+	long getMoves();
+
+	long getSensorsHit();
+
+	long getReturnLegMoves();
+
+	//returns the metrics as the JSON written to the metrics file
+	String getJson();
+
+	//sets every metric back to 0
+	void reset();
+
+}
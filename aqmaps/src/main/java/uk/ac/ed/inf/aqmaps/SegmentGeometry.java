@@ -0,0 +1,58 @@
+package uk.ac.ed.inf.aqmaps;
+
+//line segment tests on raw coordinates, using orientation (cross product) signs rather than gradients,
+//such that vertical and collinear segments need no special cases and nothing is allocated
+public final class SegmentGeometry {
+
+	private SegmentGeometry() {
+	}
+
+	//returns the cross product of (b-a) and (c-a): positive if a, b, c turn anticlockwise, negative if clockwise, 0 if collinear
+	public static double orientation(double ax, double ay, double bx, double by, double cx, double cy) {
+		return (bx-ax)*(cy-ay) - (by-ay)*(cx-ax);
+	}
+
+	//returns True if (px, py), already known to be collinear with the segment a-b, lies within its bounding box (and so on it)
+	private static boolean onSegment(double ax, double ay, double bx, double by, double px, double py) {
+		return px <= Math.max(ax, bx) && px >= Math.min(ax, bx) && py <= Math.max(ay, by) && py >= Math.min(ay, by);
+	}
+
+	//returns True if segment a-b and segment c-d share at least one point, including touching at an end and overlapping collinear segments
+	public static boolean segmentsIntersect(double ax, double ay, double bx, double by, double cx, double cy, double dx, double dy) {
+		var o1 = Math.signum(orientation(ax, ay, bx, by, cx, cy));
+		var o2 = Math.signum(orientation(ax, ay, bx, by, dx, dy));
+		var o3 = Math.signum(orientation(cx, cy, dx, dy, ax, ay));
+		var o4 = Math.signum(orientation(cx, cy, dx, dy, bx, by));
+		if(o1 != o2 && o3 != o4) { //each segment's ends lie on different sides of (or one on) the other's line
+			return true;
+		}
+		//otherwise they can only meet if they are collinear, where an end of one must lie on the other
+		return (o1 == 0 && onSegment(ax, ay, bx, by, cx, cy))
+				|| (o2 == 0 && onSegment(ax, ay, bx, by, dx, dy))
+				|| (o3 == 0 && onSegment(cx, cy, dx, dy, ax, ay))
+				|| (o4 == 0 && onSegment(cx, cy, dx, dy, bx, by));
+	}
+
+	//returns how far along segment a-b (0 at a, 1 at b) it first meets segment c-d, given that they intersect
+	//for collinear overlapping segments this is the first point of the overlap
+	public static double intersectionParam(double ax, double ay, double bx, double by, double cx, double cy, double dx, double dy) {
+		var abx = bx-ax;
+		var aby = by-ay;
+		var cdx = dx-cx;
+		var cdy = dy-cy;
+		var denom = abx*cdy - aby*cdx;
+		if(denom != 0) {
+			var t = ((cx-ax)*cdy - (cy-ay)*cdx)/denom;
+			return Math.max(0, Math.min(1, t));
+		}
+		//collinear: a itself may lie on c-d, otherwise the overlap starts at whichever of c and d comes first along a-b
+		var abLength2 = abx*abx + aby*aby;
+		if(abLength2 == 0 || onSegment(cx, cy, dx, dy, ax, ay)) {
+			return 0;
+		}
+		var tc = ((cx-ax)*abx + (cy-ay)*aby)/abLength2;
+		var td = ((dx-ax)*abx + (dy-ay)*aby)/abLength2;
+		return Math.max(0, Math.min(1, Math.min(tc < 0 ? Double.POSITIVE_INFINITY : tc, td < 0 ? Double.POSITIVE_INFINITY : td)));
+	}
+
+}
@@ -8,15 +8,16 @@ import java.util.List;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
-public class SensorDetails extends ReadWebServer{
+//the details of one sensor, as listed in a day's air-quality-data.json
+public class SensorDetails {
 	private String location;
 	private double battery;
 	private String reading;
 	
 	
 	//returns a list of the sensors to be visited on the date specified by day, month and year
-	public static List<SensorDetails> getSensors(String port, String year, String month, String day) throws IOException, InterruptedException{
-		var jsonListString = webServerContent("/maps/" + year + "/" + month + "/" + day + "/air-quality-data.json" , port);
+	public static List<SensorDetails> getSensors(ContentSource source, String year, String month, String day) throws IOException, InterruptedException{
+		var jsonListString = source.webServerContent("/maps/" + year + "/" + month + "/" + day + "/air-quality-data.json");
 		Type listType = new TypeToken<ArrayList<SensorDetails>>(){}.getType();
 		ArrayList<SensorDetails> detailsList = new Gson().fromJson(jsonListString, listType);
 		return detailsList;
@@ -30,7 +31,7 @@ public class SensorDetails extends ReadWebServer{
 	
 		
 	//returns a list of the 3 words defining the location of a sensor, given the SensorDetails defining that sensor
-	private static List<String> getSensorWords(SensorDetails details){
+	public static List<String> getSensorWords(SensorDetails details){
 		var sensorLoc = details.location;
 		var fullstopIndex1 = sensorLoc.indexOf(".");
 		var fullstopIndex2 = sensorLoc.lastIndexOf(".");
@@ -42,44 +43,14 @@ public class SensorDetails extends ReadWebServer{
 		return wordsList;
 	}
 	
-	//returns a list of lists, where each list contains the 3 words defining the location of a sensor
-	public static List<List<String>> get3WordsList(String port, String year, String month, String day) throws IOException, InterruptedException{
-		var detailsList = getSensors(port, year, month, day);
-		var numOfSensors = detailsList.size();
-		var locationList = new ArrayList<List<String>>();
-		for(var i=0; i<numOfSensors; i++) {
-			var details = detailsList.get(i);
-			var wordsList = getSensorWords(details);
-			locationList.add(wordsList);
-		}
-		return locationList;
-		
-	}
-	
-	//returns a list of the battery values
-	public static List<Double> getBatteryList(String port, String year, String month, String day) throws IOException, InterruptedException{
-		var detailsList = getSensors(port, year, month, day);
-		var numOfSensors = detailsList.size();
-		var batteryList = new ArrayList<Double>();
-		for(var i=0; i<numOfSensors; i++) {
-			var details = detailsList.get(i);
-			var battery = details.battery;
-			batteryList.add(battery);
-		}
-		return batteryList;
+	//returns the battery value, given the SensorDetails defining that sensor
+	public static double battery(SensorDetails details) {
+		return details.battery;
 	}
 	
-	//returns a list of the readings
-	public static List<String> getReadingList(String port, String year, String month, String day) throws IOException, InterruptedException{
-		var detailsList = getSensors(port, year, month, day);
-		var numOfSensors = detailsList.size();
-		var readingList = new ArrayList<String>();
-		for(var i=0; i<numOfSensors; i++) {
-			var details = detailsList.get(i);
-			var reading = details.reading;
-			readingList.add(reading);
-		}
-		return readingList;
+	//returns the reading, given the SensorDetails defining that sensor
+	public static String reading(SensorDetails details) {
+		return details.reading;
 	}
 
 
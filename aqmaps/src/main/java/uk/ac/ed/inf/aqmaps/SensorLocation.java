@@ -2,96 +2,94 @@ package uk.ac.ed.inf.aqmaps;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 
 import com.google.gson.Gson;
-import com.mapbox.geojson.Point;
 
-public class SensorLocation extends SensorDetails{
-	private Coordinates coordinates;
+//resolves the what3words locations of sensors into coordinates, using the given cache of coordinates (or none, if null)
+//and asking the content source for the locations not in it; safe to share between threads
+public class SensorLocation {
+	private final ContentSource source;
+	private final WordsCoordCache cache;
 	
 	public static class Coordinates{
 		double lng;
 		double lat;
 	}
 	
-	
-	//returns the coordinates of a sensor, given the three words that define its location
-	public static Coordinates getCoords(String port, String firstWord, String secondWord, String thirdWord) throws IOException, InterruptedException{
-		var jsonDetailsString = webServerContent("/words/" + firstWord + "/" + secondWord + "/" + thirdWord + "/details.json" , port);
-		var details = new Gson().fromJson(jsonDetailsString, SensorLocation.class);
-		return details.coordinates;
-		
+	//the part of a location's details.json which is read
+	private static class WordsDetails{
+		Coordinates coordinates;
 	}
 	
-	//returns the coordinates of a sensor as a Point
-	private static Point coordsAsPoint(String port, String firstWord, String secondWord, String thirdWord) throws IOException, InterruptedException {
-		var sensorCoords =getCoords(port, firstWord, secondWord, thirdWord);
-		var sensorLat = sensorCoords.lat;
-		var sensorLon = sensorCoords.lng;
-		var sensorPoint = Point.fromLngLat(sensorLon, sensorLat);
-		return sensorPoint;
-		
+	public SensorLocation(ContentSource source, WordsCoordCache cache) {
+		this.source = source;
+		this.cache = cache;
 	}
 	
-	//returns a list of the coordinates of all the sensors to be visited on the date specified by day, month and year
-	public static List<Point> getSensorsCoords(String port, String year, String month, String day) throws IOException, InterruptedException{
-		var wordsList = get3WordsList(port, year, month, day);
-		var numOfSensors = wordsList.size();
-		var locList = new ArrayList<Point>();
-		for(var i=0; i<numOfSensors; i++) {
-			var threeWords = wordsList.get(i);
-			var firstWord = threeWords.get(0);
-			var secondWord = threeWords.get(1);
-			var thirdWord = threeWords.get(2);
-			var sensorLoc = coordsAsPoint(port, firstWord, secondWord, thirdWord);
-			locList.add(sensorLoc);
-		}
-		return locList;
-	}
 	
-	//returns the mapping of the sensor positions to their string location
-	public static HashMap<Point,String> pointToLocation(String port, String year, String month, String day) throws IOException, InterruptedException {
-		var sensorsCoords = getSensorsCoords(port, year, month, day);
-		var detailsList = getSensors(port, year, month, day);
-		var numOfSensors = sensorsCoords.size();
-		var locations = new HashMap<Point,String>();
-		for(var i=0; i<numOfSensors; i++) {
-			var sensorLoc = location(detailsList.get(i));
-			var sensorCoords = sensorsCoords.get(i);
-			locations.put(sensorCoords, sensorLoc);
-		}
-		return locations;
+	//returns the non-constant part of the url of the details of a location, given the three words that define it
+	private static String wordsSegment(String firstWord, String secondWord, String thirdWord) {
+		return "/words/" + firstWord + "/" + secondWord + "/" + thirdWord + "/details.json";
 	}
 	
-	
-	//returns the mapping of the sensor positions to their battery values
-	public static HashMap<Point, Double> pointToBattery(String port, String year, String month, String day) throws IOException, InterruptedException{
-		var locList = getSensorsCoords(port, year, month, day);
-		var batteryList = getBatteryList(port, year, month, day);
-		var numOfSensors = locList.size();
-		var batteryValues = new HashMap<Point,Double>();
-		for(var i=0; i<numOfSensors; i++) {
-			batteryValues.put(locList.get(i), batteryList.get(i));
+	//returns the coordinates of a sensor, given the three words that define its location
+	public Coordinates getCoords(String firstWord, String secondWord, String thirdWord) throws IOException, InterruptedException{
+		var cached = cache == null ? null : cache.get(firstWord, secondWord, thirdWord);
+		if(cached != null) {
+			return asCoordinates(cached);
+		}
+		var jsonDetailsString = source.webServerContent(wordsSegment(firstWord, secondWord, thirdWord));
+		var details = new Gson().fromJson(jsonDetailsString, WordsDetails.class);
+		if(cache != null) {
+			cache.put(firstWord, secondWord, thirdWord, details.coordinates.lng, details.coordinates.lat);
 		}
-		return batteryValues;
+		return details.coordinates;
+		
 	}
 	
+	//returns Coordinates holding the {lng, lat} pair read from the words coordinate cache
+	private static Coordinates asCoordinates(double[] lngLat) {
+		var coords = new Coordinates();
+		coords.lng = lngLat[0];
+		coords.lat = lngLat[1];
+		return coords;
+	}
 	
-	//returns the mapping of the sensor positions to their readings
-	public static HashMap<Point, String> pointToReading(String port, String year, String month, String day) throws IOException, InterruptedException{
-		var locList = getSensorsCoords(port, year, month, day);
-		var readingList = getReadingList(port, year, month, day);
-		var numOfSensors = locList.size();
-		var readings = new HashMap<Point,String>();
-		for(var i=0; i<numOfSensors; i++) {
-			readings.put(locList.get(i), readingList.get(i));
+	//returns the coordinates of each location in wordsList, in the same order, given lists of the three words defining each location
+	//locations already in the words coordinate cache aren't requested; the others are resolved concurrently,
+	//as far as the content source allows, and added to the cache
+	public List<Coordinates> getCoordsList(List<List<String>> wordsList) throws IOException, InterruptedException{
+		var numOfLocations = wordsList.size();
+		var coordsArray = new Coordinates[numOfLocations];
+		var missing = new ArrayList<Integer>(); //indices of the locations which have to be requested
+		var segments = new ArrayList<String>();
+		for(var i=0; i<numOfLocations; i++) {
+			var threeWords = wordsList.get(i);
+			var cached = cache == null ? null : cache.get(threeWords.get(0), threeWords.get(1), threeWords.get(2));
+			if(cached != null) {
+				coordsArray[i] = asCoordinates(cached);
+			}
+			else {
+				missing.add(i);
+				segments.add(wordsSegment(threeWords.get(0), threeWords.get(1), threeWords.get(2)));
+			}
+		}
+		if(segments.isEmpty() == false) {
+			var jsonDetailsStrings = source.webServerContents(segments);
+			var gson = new Gson();
+			for(var j=0; j<segments.size(); j++) {
+				var i = missing.get(j);
+				var coords = gson.fromJson(jsonDetailsStrings.get(j), WordsDetails.class).coordinates;
+				coordsArray[i] = coords;
+				if(cache != null) {
+					var threeWords = wordsList.get(i);
+					cache.put(threeWords.get(0), threeWords.get(1), threeWords.get(2), coords.lng, coords.lat);
+				}
+			}
 		}
-		return readings;
+		return Arrays.asList(coordsArray);
 	}
 	
-	
-	
-
 }
@@ -0,0 +1,206 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.util.Random;
+
+//chooses the order in which the drone visits the sensors, such that the whole flight, including the way back to the start, takes few moves
+//the greedy nearest-sensor order is improved with 2-opt and Or-opt moves, then repeatedly kicked at random and improved again,
+//keeping the best order found; the kicks are drawn from the seed, such that the same seed always gives the same order
+//unless the time budget runs out first
+public final class TourOptimizer {
+	//the number of times the best order is kicked and improved again, overridable with -Daqmaps.tourRestarts
+	public final static int defaultRestarts = Integer.getInteger("aqmaps.tourRestarts", 200);
+	//the most time spent improving one order, overridable with -Daqmaps.tourBudgetMillis
+	public final static long defaultBudgetMillis = Long.getLong("aqmaps.tourBudgetMillis", 2000);
+	private final static int maxSegment = 3; //longest run of sensors moved at once by Or-opt
+
+	private final LegCostMatrix costs;
+	private final long seed;
+	private final int restarts;
+	private final long budgetMillis;
+
+	public TourOptimizer(LegCostMatrix costs, long seed, int restarts, long budgetMillis) {
+		this.costs = costs;
+		this.seed = seed;
+		this.restarts = restarts;
+		this.budgetMillis = budgetMillis;
+	}
+
+	public TourOptimizer(LegCostMatrix costs, long seed) {
+		this(costs, seed, defaultRestarts, defaultBudgetMillis);
+	}
+
+	//returns the number of moves of the flight from the start through the sensors in the order of tour and back to the start
+	public int cost(int[] tour) {
+		var start = costs.start();
+		if(tour.length == 0) {
+			return 0;
+		}
+		var total = costs.moves(start, tour[0]) + costs.moves(tour[tour.length-1], start);
+		for(var k=0; k+1<tour.length; k++) {
+			total += costs.moves(tour[k], tour[k+1]);
+		}
+		return total;
+	}
+
+	//returns the order given by always flying to the sensor fewest moves away
+	public int[] greedyTour() {
+		var numSensors = costs.size() - 1;
+		var tour = new int[numSensors];
+		var visited = new boolean[numSensors];
+		var current = costs.start();
+		for(var k=0; k<numSensors; k++) {
+			var next = -1;
+			for(var s=0; s<numSensors; s++) {
+				if(visited[s] == false && (next == -1 || costs.moves(current, s) < costs.moves(current, next))) {
+					next = s;
+				}
+			}
+			tour[k] = next;
+			visited[next] = true;
+			current = next;
+		}
+		return tour;
+	}
+
+	//returns the best order found within the number of restarts and the time budget
+	public int[] optimize() {
+		var deadline = System.nanoTime() + budgetMillis*1_000_000;
+		var best = improve(greedyTour(), deadline);
+		var bestCost = cost(best);
+		var random = new Random(seed);
+		for(var restart=0; restart<restarts && System.nanoTime() < deadline; restart++) {
+			var candidate = improve(kick(best, random), deadline);
+			var candidateCost = cost(candidate);
+			if(candidateCost <= bestCost) { //accepting equal orders lets the search drift across plateaus
+				best = candidate;
+				bestCost = candidateCost;
+			}
+		}
+		return best;
+	}
+
+	//returns a copy of tour with a double bridge kick: cut into four parts A B C D, it becomes A C B D
+	private static int[] kick(int[] tour, Random random) {
+		var n = tour.length;
+		if(n < 8) {
+			var kicked = tour.clone();
+			for(var k=n-1; k>0; k--) { //too short to cut, so shuffle instead
+				var swap = random.nextInt(k+1);
+				var temp = kicked[k];
+				kicked[k] = kicked[swap];
+				kicked[swap] = temp;
+			}
+			return kicked;
+		}
+		var cut1 = 1 + random.nextInt(n/4);
+		var cut2 = cut1 + 1 + random.nextInt(n/4);
+		var cut3 = cut2 + 1 + random.nextInt(n/4);
+		var kicked = new int[n];
+		var k = 0;
+		for(var i=0; i<cut1; i++) kicked[k++] = tour[i];
+		for(var i=cut2; i<cut3; i++) kicked[k++] = tour[i];
+		for(var i=cut1; i<cut2; i++) kicked[k++] = tour[i];
+		for(var i=cut3; i<n; i++) kicked[k++] = tour[i];
+		return kicked;
+	}
+
+	//returns tour improved by 2-opt and Or-opt moves until neither finds an improvement or the deadline passes
+	private int[] improve(int[] tour, long deadline) {
+		var n = tour.length;
+		//the flight as nodes, with the start at both ends: node[0] = node[n+1] = start, node[1..n] = tour
+		var node = new int[n+2];
+		node[0] = costs.start();
+		node[n+1] = costs.start();
+		System.arraycopy(tour, 0, node, 1, n);
+		//forward[k] is the cost of flying node[0..k] in order, backward[k] the cost of flying node[k..0] in reverse
+		var forward = new int[n+2];
+		var backward = new int[n+2];
+		var improved = true;
+		while(improved && System.nanoTime() < deadline) {
+			improved = false;
+			prefixCosts(node, forward, backward);
+			//2-opt: reverse node[i..j]
+			TWO_OPT:
+			for(var i=1; i<n; i++) {
+				for(var j=i+1; j<=n; j++) {
+					var before = costs.moves(node[i-1], node[i]) + (forward[j]-forward[i]) + costs.moves(node[j], node[j+1]);
+					var after = costs.moves(node[i-1], node[j]) + (backward[j]-backward[i]) + costs.moves(node[i], node[j+1]);
+					if(after < before) {
+						reverse(node, i, j);
+						improved = true;
+						break TWO_OPT;
+					}
+				}
+			}
+			if(improved) {
+				continue;
+			}
+			//Or-opt: move node[i..i+len-1] between node[j] and node[j+1], as it is or reversed
+			OR_OPT:
+			for(var len=1; len<=maxSegment && len<n; len++) {
+				for(var i=1; i+len-1<=n; i++) {
+					var last = i+len-1;
+					var removed = costs.moves(node[i-1], node[i]) + costs.moves(node[last], node[last+1]) - costs.moves(node[i-1], node[last+1]);
+					var inside = forward[last]-forward[i];
+					var insideReversed = backward[last]-backward[i];
+					for(var j=0; j<=n; j++) {
+						if(j >= i-1 && j <= last) {
+							continue;
+						}
+						var a = node[j];
+						var b = node[j+1];
+						var gapCost = costs.moves(a, b);
+						var asItIs = costs.moves(a, node[i]) + inside + costs.moves(node[last], b) - gapCost;
+						var reversed = costs.moves(a, node[last]) + insideReversed + costs.moves(node[i], b) - gapCost;
+						var added = Math.min(asItIs, reversed);
+						if(added - inside < removed) {
+							moveSegment(node, i, last, j, reversed < asItIs);
+							improved = true;
+							break OR_OPT;
+						}
+					}
+				}
+			}
+		}
+		var improvedTour = new int[n];
+		System.arraycopy(node, 1, improvedTour, 0, n);
+		return improvedTour;
+	}
+
+	//fills forward and backward with the cost of flying the nodes up to each index, in order and in reverse
+	private void prefixCosts(int[] node, int[] forward, int[] backward) {
+		forward[0] = 0;
+		backward[0] = 0;
+		for(var k=1; k<node.length; k++) {
+			forward[k] = forward[k-1] + costs.moves(node[k-1], node[k]);
+			backward[k] = backward[k-1] + costs.moves(node[k], node[k-1]);
+		}
+	}
+
+	//reverses node[i..j]
+	private static void reverse(int[] node, int i, int j) {
+		for(; i<j; i++, j--) {
+			var temp = node[i];
+			node[i] = node[j];
+			node[j] = temp;
+		}
+	}
+
+	//moves node[i..last] to between node[j] and node[j+1], reversing it if asked
+	private static void moveSegment(int[] node, int i, int last, int j, boolean reversed) {
+		var len = last-i+1;
+		var segment = new int[len];
+		for(var k=0; k<len; k++) {
+			segment[k] = reversed ? node[last-k] : node[i+k];
+		}
+		if(j > last) { //shift node[last+1..j] back over the segment
+			System.arraycopy(node, last+1, node, i, j-last);
+			System.arraycopy(segment, 0, node, j-len+1, len);
+		}
+		else { //shift node[j+1..i-1] forward over the segment
+			System.arraycopy(node, j+1, node, j+1+len, i-j-1);
+			System.arraycopy(segment, 0, node, j+1, len);
+		}
+	}
+
+}
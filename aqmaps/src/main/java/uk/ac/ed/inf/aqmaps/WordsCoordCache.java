@@ -0,0 +1,181 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+
+//persistent cache of what3words locations to their coordinates, shared by every run on this machine
+//the file is a 16 byte header (magic, version, record count) followed by fixed 80 byte records of
+//[key length (1 byte)][key, UTF-8, zero padded to 63 bytes][lng (8 bytes)][lat (8 bytes)]
+//records are only ever appended, and the record count is written after the record it covers,
+//such that readers which map the file never see a partially written record
+//the records read are held in a concurrent index, such that a location already read is looked up without taking any lock;
+//the file is grown by doubling, only while holding the file lock, and read through a mapping of the whole file,
+//mapped again only when the records outgrow it; the space past the last record counted is zeros
+public final class WordsCoordCache {
+	private final static int magic = 0x41513357; //"AQ3W"
+	private final static int version = 1;
+	private final static int headerSize = 16;
+	private final static int countOffset = 8;
+	private final static int maxKeyBytes = 63;
+	private final static int recordSize = 1 + maxKeyBytes + 8 + 8;
+
+	//file used when no other is given, overridable with -Daqmaps.wordsCache (an empty value turns the cache off)
+	public final static String defaultFile = System.getProperty("aqmaps.wordsCache", "words-coords.cache");
+
+	private static WordsCoordCache shared;
+
+	private final Path file;
+	private final FileChannel channel;
+	private final ConcurrentHashMap<String, double[]> index = new ConcurrentHashMap<String, double[]>(); //key to {lng, lat}
+	private MappedByteBuffer mapped; //read and remapped only while holding the instance lock
+	private int recordsRead = 0;
+
+	private WordsCoordCache(Path file) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		var lock = channel.lock();
+		try {
+			if(channel.size() < headerSize) {
+				var header = ByteBuffer.allocate(headerSize);
+				header.putInt(magic).putInt(version).putLong(0).flip();
+				channel.write(header, 0);
+				channel.force(false);
+			}
+		} finally {
+			lock.release();
+		}
+		mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		if(mapped.getInt(0) != magic || mapped.getInt(4) != version) {
+			channel.close();
+			throw new IOException(file + " is not a words coordinate cache");
+		}
+		readNewRecords();
+	}
+
+	//returns the cache stored in the given file, creating the file if it doesn't exist
+	public static WordsCoordCache open(Path file) throws IOException {
+		return new WordsCoordCache(file);
+	}
+
+	//returns the cache in the default file, opened once per run, or null if the cache is turned off or can't be opened
+	public static synchronized WordsCoordCache shared() {
+		if(shared == null && defaultFile.isEmpty() == false) {
+			try {
+				shared = open(Paths.get(defaultFile));
+			} catch (IOException e) {
+				System.err.println("Warning: words coordinate cache " + defaultFile + " unavailable, resolving every location from the web server.");
+				return null;
+			}
+		}
+		return shared;
+	}
+
+	//returns the file backing this cache
+	public Path file() {
+		return file;
+	}
+
+	//maps the whole file again if the mapping holds fewer than its first size bytes
+	//the mapping never reaches past the end of the file, which only put grows
+	private void ensureMapped(long size) throws IOException {
+		if(size > mapped.capacity()) {
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(size > mapped.capacity()) {
+				throw new IOException(file + " ends inside a record");
+			}
+		}
+	}
+
+	//indexes any records appended (by this or another process) since the file was last read; the caller holds the instance lock
+	private void readNewRecords() throws IOException {
+		var count = (int) mapped.getLong(countOffset);
+		if(count == recordsRead) {
+			return;
+		}
+		ensureMapped(headerSize + (long) count * recordSize);
+		var keyBytes = new byte[maxKeyBytes];
+		for(var i=recordsRead; i<count; i++) {
+			var offset = headerSize + i * recordSize;
+			var keyLength = mapped.get(offset) & 0xff;
+			for(var j=0; j<keyLength; j++) {
+				keyBytes[j] = mapped.get(offset + 1 + j);
+			}
+			var coordsOffset = offset + 1 + maxKeyBytes;
+			index.putIfAbsent(new String(keyBytes, 0, keyLength, StandardCharsets.UTF_8),
+					new double[] {mapped.getDouble(coordsOffset), mapped.getDouble(coordsOffset + 8)});
+		}
+		recordsRead = count;
+	}
+
+	//returns the key under which the coordinates of the three words are stored
+	public static String key(String firstWord, String secondWord, String thirdWord) {
+		return firstWord + "." + secondWord + "." + thirdWord;
+	}
+
+	//returns the {lng, lat} stored for the three words, or null if they haven't been cached yet
+	//only a location not yet indexed takes the lock, to index what other processes have appended since
+	public double[] get(String firstWord, String secondWord, String thirdWord) throws IOException {
+		var key = key(firstWord, secondWord, thirdWord);
+		var coords = index.get(key);
+		if(coords == null) {
+			synchronized(this) {
+				readNewRecords();
+			}
+			coords = index.get(key);
+		}
+		return coords == null ? null : coords.clone();
+	}
+
+	//appends the coordinates of the three words to the file, unless they are already in it or the words are too long to store
+	public synchronized void put(String firstWord, String secondWord, String thirdWord, double lng, double lat) throws IOException {
+		var key = key(firstWord, secondWord, thirdWord);
+		var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		if(keyBytes.length > maxKeyBytes) {
+			return;
+		}
+		var lock = channel.lock(); //other processes may be appending to the same file
+		try {
+			readNewRecords();
+			if(index.containsKey(key)) {
+				return;
+			}
+			var count = recordsRead;
+			var end = headerSize + (long) (count + 1) * recordSize;
+			if(end > channel.size()) { //grown to twice its size, such that readers map it again only a few times in a run appending many records
+				channel.write(ByteBuffer.allocate(1), Math.max(end, 2 * channel.size()) - 1);
+			}
+			var record = ByteBuffer.allocate(recordSize);
+			record.put((byte) keyBytes.length).put(keyBytes);
+			record.position(1 + maxKeyBytes);
+			record.putDouble(lng).putDouble(lat).flip();
+			channel.write(record, headerSize + (long) count * recordSize);
+			var countBuffer = ByteBuffer.allocate(8);
+			countBuffer.putLong(count + 1).flip();
+			channel.write(countBuffer, countOffset);
+			channel.force(false);
+			index.put(key, new double[] {lng, lat}); //indexed directly, as the mapping needn't hold the records this cache wrote
+			recordsRead = count + 1;
+		} finally {
+			lock.release();
+		}
+	}
+
+	//returns the number of locations held in the cache
+	public synchronized int size() throws IOException {
+		readNewRecords();
+		return recordsRead;
+	}
+
+	//closes the file backing this cache
+	public synchronized void close() throws IOException {
+		channel.close();
+	}
+
+}
@@ -1,44 +1,37 @@
 package uk.ac.ed.inf.aqmaps;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.file.Paths;
 
-public class WriteFlightpath extends DroneMovement {
+public class WriteFlightpath implements FlightSink {
+	private final static String lineSeparator = System.lineSeparator();
 	
-	//creates a flightpath-dd-mm-yyyy.txt file, which lists where the drone has been and which sensors it connected to
-	public static void writeTxtFile(String day, String month, String year, String lat, String lon, String port) throws IOException, InterruptedException {
-		var droneFlight = dronePath(day, month, year, lat, lon, port);
-		var dronePositions = droneFlight.get(0);
-		var sensorsVisited = droneFlight.get(1);
-		var numPositions = dronePositions.size();
-		var directions = chosenDirections(dronePositions);
-		var locFromPoint = pointToLocation(port, year, month, day);
-		var fw = new FileWriter("flightpath-" + day + "-" + month + "-" + year + ".txt");
-		var bw = new BufferedWriter(fw);
-		var pw = new PrintWriter(bw);
-		for(var i=0; i<numPositions-1; i++) {
-			var moveNum = i+1;
-			var positionBefore = dronePositions.get(i);
-			var lonBefore = positionBefore.longitude();
-			var latBefore = positionBefore.latitude();
-			var positionAfter = dronePositions.get(i+1);
-			var lonAfter = positionAfter.longitude();
-			var latAfter = positionAfter.latitude();
-			var direction = directions.get(i);
-			var sensorVisited = sensorsVisited.get(i);
-			String sensorLoc = null;
-			if(sensorVisited != null) {
-				sensorLoc = locFromPoint.get(sensorVisited);
-			}
-			pw.println(moveNum + "," + lonBefore + "," + latBefore + "," + direction + "," + lonAfter + "," + latAfter + "," + sensorLoc);
-			
+	//writes the lines of the flightpath text, which lists where the drone has been, the direction of each move and which sensors it connected to
+	static void writeTxt(ChannelWriter out, FlightPlan plan) throws IOException {
+		var snapshot = plan.snapshot();
+		var numMoves = plan.numMoves();
+		for(var i=0; i<numMoves; i++) {
+			var sensorHit = plan.sensorHit(i);
+			out.write(i+1).write(',')
+				.write(plan.lng(i)).write(',').write(plan.lat(i)).write(',')
+				.write(plan.direction(i)).write(',')
+				.write(plan.lng(i+1)).write(',').write(plan.lat(i+1)).write(',')
+				.write(sensorHit == -1 ? "null" : snapshot.location(sensorHit))
+				.write(lineSeparator);
 		}
-		pw.flush();
-		pw.close();
-        bw.close();
-        fw.close();
+	}
+
+	//creates a flightpath-dd-mm-yyyy.txt file of the drone's flight
+	//each line is written to the file as soon as it is formatted, such that the file is never held in memory
+	public static void writeTxtFile(String day, String month, String year, FlightPlan plan) throws IOException {
+		try (var out = ChannelWriter.create(Paths.get("flightpath-" + day + "-" + month + "-" + year + ".txt"))) {
+			writeTxt(out, plan);
+		}
+	}
+
+	@Override
+	public void write(String day, String month, String year, FlightPlan plan) throws IOException {
+		writeTxtFile(day, month, year, plan);
 	}
 
 }
@@ -1,16 +1,19 @@
 package uk.ac.ed.inf.aqmaps;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
 
 import com.mapbox.geojson.Feature;
 import com.mapbox.geojson.FeatureCollection;
 import com.mapbox.geojson.Geometry;
 import com.mapbox.geojson.LineString;
 import com.mapbox.geojson.Point;
+import com.mapbox.geojson.utils.GeoJsonUtils;
 
-public class WriteReadings extends WriteFlightpath{
+public class WriteReadings implements FlightSink {
+	private final static char[] hexDigits = "0123456789abcdef".toCharArray();
 
 	//returns a Feature consisting of the Point geometry with properties "location","rgb-string", "marker-color" and "marker-symbol"
 	private static Feature createMarkerFeature(Point sensorPos, String location, String colour, String symbol) {
@@ -22,61 +25,161 @@ public class WriteReadings extends WriteFlightpath{
 		return feature;
 	}
 	
-	//returns a Feature Collection of the drone's flight
-	private static FeatureCollection createFeatureCollection(String day, String month, String year, String lat, String lon, String port) throws IOException, InterruptedException {
+	//returns a Feature Collection of the drone's flight, held in memory
+	public static FeatureCollection createFeatureCollection(FlightPlan plan) {
+		return createFeatureCollection(List.of(plan));
+	}
+	
+	//returns a Feature Collection of the flights of several drones over the same day, held in memory: the flightpath of every drone,
+	//then the markers of the sensors each drone visited, then those of the sensors they didn't
+	public static FeatureCollection createFeatureCollection(List<FlightPlan> plans) {
 		var featureList = new ArrayList<Feature>();
 		
-		var droneFlight = dronePath(day, month, year, lat, lon, port);
-		var dronePositions = droneFlight.get(0);
-		var sensorsVisited = droneFlight.get(1);
-		var numVisited = sensorsVisited.size();
-		
-		var lineStr = LineString.fromLngLats(dronePositions);
-		var flightpath = Feature.fromGeometry((Geometry) lineStr);
-		featureList.add(flightpath);
-		
-		var locFromPoint = pointToLocation(port, year, month, day);
-		var batteryFromPoint = pointToBattery(port, year, month, day);
-		var readingFromPoint = pointToReading(port, year, month, day);
+		for(var plan : plans) {
+			var lineStr = LineString.fromLngLats(plan.positions());
+			var flightpath = Feature.fromGeometry((Geometry) lineStr);
+			featureList.add(flightpath);
+		}
 		
-		//marker properties for the sensors visited
-		for(var i=0; i<numVisited; i++) {
-			var sensorPos = sensorsVisited.get(i);
-			if(sensorPos != null) {
-				var location = locFromPoint.get(sensorPos);
-				var battery = batteryFromPoint.get(sensorPos);
-				var reading = readingFromPoint.get(sensorPos);
-				var colour = getColour(reading, battery);
-				var symbol = getSymbol(reading, battery);
-				
-				var feature = createMarkerFeature(sensorPos, location, colour, symbol);
-				featureList.add(feature);
+		//marker properties for the sensors visited, in the order they were visited
+		for(var plan : plans) {
+			var snapshot = plan.snapshot();
+			var numMoves = plan.numMoves();
+			for(var i=0; i<numMoves; i++) {
+				var sensorInd = plan.sensorHit(i);
+				if(sensorInd != -1) {
+					var location = snapshot.location(sensorInd);
+					var battery = snapshot.battery(sensorInd);
+					var reading = snapshot.reading(sensorInd);
+					var colour = MarkerProperties.getColour(reading, battery);
+					var symbol = MarkerProperties.getSymbol(reading, battery);
+					
+					var feature = createMarkerFeature(snapshot.point(sensorInd), location, colour, symbol);
+					featureList.add(feature);
+				}
 			}
 		}
 		
 		//marker properties for the sensors not visited
-		var sensorsNotVisit = sensorsNotVisited(port, day, month, year, sensorsVisited);
-		if(sensorsNotVisit.isEmpty() == false) {
-			var numNotVisit = sensorsNotVisit.size();
-			for(var i=0; i<numNotVisit; i++) {
-				var sensorPos = sensorsNotVisit.get(i);
-				var location = locFromPoint.get(sensorPos);
+		for(var plan : plans) {
+			var snapshot = plan.snapshot();
+			for(var sensorInd : plan.unvisited()) {
+				var location = snapshot.location(sensorInd);
 				var colour = "#aaaaaa";
 				String symbol = null;
-				var feature = createMarkerFeature(sensorPos, location, colour, symbol);
+				var feature = createMarkerFeature(snapshot.point(sensorInd), location, colour, symbol);
 				featureList.add(feature);
 			}
-			
 		}
 		return FeatureCollection.fromFeatures(featureList);
 		
 	}
 	
+	//writes text as a JSON string, escaped as Gson escapes it by default
+	private static void writeJsonString(ChannelWriter out, String text) throws IOException {
+		out.write('"');
+		var length = text.length();
+		for(var i=0; i<length; i++) {
+			var c = text.charAt(i);
+			switch(c) {
+			case '"': out.write("\\\""); break;
+			case '\\': out.write("\\\\"); break;
+			case '\t': out.write("\\t"); break;
+			case '\b': out.write("\\b"); break;
+			case '\n': out.write("\\n"); break;
+			case '\r': out.write("\\r"); break;
+			case '\f': out.write("\\f"); break;
+			default:
+				if(c < 0x20 || c == '<' || c == '>' || c == '&' || c == '=' || c == '\'' || c == '\u2028' || c == '\u2029') {
+					out.write("\\u").write(hexDigits[c >> 12 & 0xf]).write(hexDigits[c >> 8 & 0xf]).write(hexDigits[c >> 4 & 0xf]).write(hexDigits[c & 0xf]);
+				}
+				else {
+					out.write(c);
+				}
+			}
+		}
+		out.write('"');
+	}
+
+	//writes a position as GeoJSON coordinates, rounded to 7 decimal places as the GeoJSON library rounds them
+	private static void writeCoordinates(ChannelWriter out, double lng, double lat) throws IOException {
+		out.write('[').write(GeoJsonUtils.trim(lng)).write(',').write(GeoJsonUtils.trim(lat)).write(']');
+	}
+
+	//writes the Feature of a sensor's marker, leaving out the symbol if it is null as the GeoJSON library does
+	private static void writeMarkerFeature(ChannelWriter out, double lng, double lat, String location, String colour, String symbol) throws IOException {
+		out.write(",{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":");
+		writeCoordinates(out, lng, lat);
+		out.write("},\"properties\":{\"location\":");
+		writeJsonString(out, location);
+		out.write(",\"rbg-string\":");
+		writeJsonString(out, colour);
+		out.write(",\"marker-color\":");
+		writeJsonString(out, colour);
+		if(symbol != null) {
+			out.write(",\"marker-symbol\":");
+			writeJsonString(out, symbol);
+		}
+		out.write("}}");
+	}
+
+	//writes the GeoJSON of the drone's flight, one feature at a time, exactly as the toJson of createFeatureCollection would give it
+	static void writeGeojson(ChannelWriter out, FlightPlan plan) throws IOException {
+		writeGeojson(out, List.of(plan));
+	}
+	
+	//as above, of the flights of several drones over the same day
+	static void writeGeojson(ChannelWriter out, List<FlightPlan> plans) throws IOException {
+		out.write("{\"type\":\"FeatureCollection\",\"features\":[");
+		for(var p=0; p<plans.size(); p++) {
+			var plan = plans.get(p);
+			var numMoves = plan.numMoves();
+			out.write(p == 0 ? "{" : ",{").write("\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[");
+			for(var i=0; i<=numMoves; i++) {
+				if(i > 0) {
+					out.write(',');
+				}
+				writeCoordinates(out, plan.lng(i), plan.lat(i));
+			}
+			out.write("]},\"properties\":{}}");
+		}
+		
+		//markers for the sensors visited, in the order they were visited
+		for(var plan : plans) {
+			var snapshot = plan.snapshot();
+			var numMoves = plan.numMoves();
+			for(var i=0; i<numMoves; i++) {
+				var sensorInd = plan.sensorHit(i);
+				if(sensorInd != -1) {
+					var battery = snapshot.battery(sensorInd);
+					var reading = snapshot.reading(sensorInd);
+					writeMarkerFeature(out, snapshot.lng(sensorInd), snapshot.lat(sensorInd), snapshot.location(sensorInd),
+							MarkerProperties.getColour(reading, battery), MarkerProperties.getSymbol(reading, battery));
+				}
+			}
+		}
+		
+		//markers for the sensors not visited
+		for(var plan : plans) {
+			var snapshot = plan.snapshot();
+			for(var sensorInd : plan.unvisited()) {
+				writeMarkerFeature(out, snapshot.lng(sensorInd), snapshot.lat(sensorInd), snapshot.location(sensorInd), "#aaaaaa", null);
+			}
+		}
+		out.write("]}");
+	}
+
 	//creates a readings-dd-mm-yyyy.geojson file of the drone's flight
-	public static void writeGeojsonFile(String day, String month, String year, String lat, String lon, String port) throws IOException, InterruptedException {
-		var fw = new FileWriter("readings-" + day + "-" + month + "-" + year +".geojson");
-		fw.write(createFeatureCollection(day, month, year, lat, lon, port).toJson());
-		fw.close();
+	//the features are written to the file as they are formatted, such that the file is never held in memory
+	public static void writeGeojsonFile(String day, String month, String year, FlightPlan plan) throws IOException {
+		try (var out = ChannelWriter.create(Paths.get("readings-" + day + "-" + month + "-" + year +".geojson"))) {
+			writeGeojson(out, plan);
+		}
+	}
+
+	@Override
+	public void write(String day, String month, String year, FlightPlan plan) throws IOException {
+		writeGeojsonFile(day, month, year, plan);
 	}
 
 
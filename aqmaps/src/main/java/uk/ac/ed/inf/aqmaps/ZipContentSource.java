@@ -0,0 +1,63 @@
+package uk.ac.ed.inf.aqmaps;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+//reads the maps, words and buildings data from a copy of the web server's files zipped up as WebServer.zip, without any server running
+//every file is read into memory when the zip is opened, such that the content is the same on every call and costs no I/O,
+//which is what benchmarks and offline runs want
+public final class ZipContentSource implements ContentSource {
+	//the folder of the zip holding the web server's files, as in the WebServer.zip handed out with the coursework
+	public final static String defaultRoot = "WebServer";
+
+	private final Map<String, String> contents;
+
+	private ZipContentSource(Map<String, String> contents) {
+		this.contents = contents;
+	}
+
+	//reads every file under the folder root of the zip, keyed by its path below root as the url segment which would fetch it
+	public static ZipContentSource open(Path zip, String root) throws IOException {
+		var prefix = root + "/";
+		var contents = new HashMap<String, String>();
+		try (var zipFile = new ZipFile(zip.toFile())) {
+			var entries = zipFile.entries();
+			while(entries.hasMoreElements()) {
+				var entry = entries.nextElement();
+				if(entry.isDirectory() || entry.getName().startsWith(prefix) == false) {
+					continue;
+				}
+				try (var in = zipFile.getInputStream(entry)) {
+					contents.put(entry.getName().substring(root.length()), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return new ZipContentSource(contents);
+	}
+
+	//as above, from the default folder of the zip
+	public static ZipContentSource open(Path zip) throws IOException {
+		return open(zip, defaultRoot);
+	}
+
+	//returns the number of files read from the zip
+	public int size() {
+		return contents.size();
+	}
+
+	//returns the content of the file at the given non-constant part of the url
+	@Override
+	public String webServerContent(String urlSegment) throws IOException {
+		var content = contents.get(urlSegment);
+		if(content == null) {
+			throw new FileNotFoundException("No file for " + urlSegment + " in the zip");
+		}
+		return content;
+	}
+
+}
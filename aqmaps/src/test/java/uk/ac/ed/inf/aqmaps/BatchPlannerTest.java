@@ -0,0 +1,31 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BatchPlannerTest
+{
+    @Test
+    public void datesAreParsedAsRangesAndLists()
+    {
+        assertEquals(29, BatchPlanner.parseDates("01-02-2020..29-02-2020").size());
+        assertEquals(List.of(LocalDate.of(2020, 2, 29), LocalDate.of(2021, 3, 1)), BatchPlanner.parseDates("29-02-2020, 01-03-2021"));
+    }
+
+    @Test(expected = DateTimeParseException.class)
+    public void impossibleDatesAreRejected()
+    {
+        BatchPlanner.parseDates("01-02-2020,31-02-2020"); //not moved to 29-02
+    }
+
+    @Test(expected = DateTimeParseException.class)
+    public void impossibleRangeEndsAreRejected()
+    {
+        BatchPlanner.parseDates("01-02-2021..29-02-2021");
+    }
+}
@@ -0,0 +1,122 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+public class DistanceFieldsTest
+{
+    @Test
+    public void fieldsAreWithinAMoveOfTheSearchedLegs() throws Exception
+    {
+        var day = new FakeDay(12, FakeDay.oneBuilding);
+        var snapshot = day.snapshot();
+        var noFlyIndex = NoFlyIndex.load(day);
+        var fields = DistanceFields.inMemory(noFlyIndex);
+        var exact = new DroneMovement(noFlyIndex);
+        var range = DroneMovement.getConnectRange();
+
+        //building the lattice and a field tests many moves, none of which are counted as the queries of flights
+        var queriesBefore = RunMetrics.shared().getIntersectionQueries();
+        fields.moves(snapshot.lng(0), snapshot.lat(0), snapshot.lng(1), snapshot.lat(1), range);
+        assertEquals(queriesBefore, RunMetrics.shared().getIntersectionQueries());
+        for(var i=0; i<snapshot.size(); i++) {
+            for(var j=0; j<snapshot.size(); j++) {
+                if(i != j) {
+                    var estimate = fields.moves(snapshot.lng(i), snapshot.lat(i), snapshot.lng(j), snapshot.lat(j), range);
+                    var searched = exact.legMoves(snapshot.lng(i), snapshot.lat(i), snapshot.lng(j), snapshot.lat(j), range);
+                    assertTrue(estimate != -1);
+                    assertTrue(Math.abs(estimate - searched) <= 1);
+                }
+            }
+        }
+        assertEquals(snapshot.size(), fields.size());
+    }
+
+    @Test
+    public void fieldsAreReadBackFromTheirFile() throws Exception
+    {
+        var day = new FakeDay(3, FakeDay.oneBuilding);
+        var snapshot = day.snapshot();
+        var noFlyIndex = NoFlyIndex.load(day);
+        var dir = Files.createTempDirectory("aqmaps-fields");
+        try {
+            var fields = DistanceFields.open(noFlyIndex, dir);
+            var moves = new int[snapshot.size()];
+            for(var i=0; i<snapshot.size(); i++) {
+                moves[i] = fields.moves(-3.1910, 55.9430, snapshot.lng(i), snapshot.lat(i), DroneMovement.getConnectRange());
+            }
+            assertEquals(3, fields.size());
+
+            //a reopened file reads a field only when it is asked for, and works none out again
+            var fileSize = Files.size(fields.file());
+            var reopened = DistanceFields.open(noFlyIndex, dir);
+            assertEquals(fields.file(), reopened.file());
+            assertEquals(3, reopened.size());
+            assertEquals(0, reopened.loaded());
+            for(var i=0; i<snapshot.size(); i++) {
+                assertEquals(moves[i], reopened.moves(-3.1910, 55.9430, snapshot.lng(i), snapshot.lat(i), DroneMovement.getConnectRange()));
+            }
+            assertEquals(3, reopened.size());
+            assertEquals(3, reopened.loaded());
+            assertEquals(fileSize, Files.size(reopened.file()));
+        } finally {
+            try (var files = Files.list(dir)) {
+                for(var file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void onlySensorFieldsAndTheLegalMovesAreKept() throws Exception
+    {
+        var day = new FakeDay(3, FakeDay.oneBuilding);
+        var snapshot = day.snapshot();
+        var noFlyIndex = NoFlyIndex.load(day);
+        var dir = Files.createTempDirectory("aqmaps-fields");
+        try {
+            var fields = DistanceFields.open(noFlyIndex, dir);
+            var toStart = fields.moves(snapshot.lng(0), snapshot.lat(0), -3.1910, 55.9430, DroneConstraints.r);
+            assertTrue(toStart > 0);
+            assertEquals(0, fields.size());
+            assertEquals(32, Files.size(fields.file()));
+            assertTrue(Files.exists(fields.movesFile()));
+
+            //a reopened file reads the legal moves rather than testing them again: with every move made illegal in the file, no sensor can be reached
+            try (var channel = FileChannel.open(fields.movesFile(), StandardOpenOption.WRITE)) {
+                var size = channel.size();
+                var noMoves = ByteBuffer.allocate((int) size - 24);
+                while(noMoves.hasRemaining()) {
+                    channel.write(noMoves, 24 + noMoves.position());
+                }
+            }
+            var reopened = DistanceFields.open(noFlyIndex, dir);
+            assertEquals(-1, reopened.moves(-3.1910, 55.9430, snapshot.lng(1), snapshot.lat(1), DroneMovement.getConnectRange()));
+        } finally {
+            try (var files = Files.list(dir)) {
+                for(var file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void otherBuildingsHashDifferently() throws Exception
+    {
+        assertNotEquals(NoFlyIndex.load(new FakeDay(0)).geometryHash(), NoFlyIndex.load(new FakeDay(0, FakeDay.oneBuilding)).geometryHash());
+        assertEquals(NoFlyIndex.load(new FakeDay(0, FakeDay.oneBuilding)).geometryHash(), NoFlyIndex.load(new FakeDay(5, FakeDay.oneBuilding)).geometryHash());
+    }
+}
@@ -0,0 +1,56 @@
+package uk.ac.ed.inf.aqmaps;
+
+//a content source serving one made-up day without a web server: numSensors sensors spread over the area,
+//each at the location "sN.sN.sN", and the buildings given as GeoJSON (none by default)
+public class FakeDay implements ContentSource
+{
+    //the buildings of a single rectangular building just east of the middle of the area, which the sensors lie either side of
+    public static final String oneBuilding = building(-3.1884, 55.9437, -3.1880, 55.9455);
+
+    private final int numSensors;
+    private final String noFlyZones;
+
+    public FakeDay(int numSensors)
+    {
+        this(numSensors, "{\"type\":\"FeatureCollection\",\"features\":[]}");
+    }
+
+    public FakeDay(int numSensors, String noFlyZones)
+    {
+        this.numSensors = numSensors;
+        this.noFlyZones = noFlyZones;
+    }
+
+    @Override
+    public String webServerContent(String urlSegment)
+    {
+        if(urlSegment.endsWith("air-quality-data.json")) {
+            var json = new StringBuilder("[");
+            for(var i=0; i<numSensors; i++) {
+                json.append(i == 0 ? "" : ",").append("{\"location\":\"s" + i + ".s" + i + ".s" + i + "\",\"battery\":50.0,\"reading\":\"100.0\"}");
+            }
+            return json.append("]").toString();
+        }
+        if(urlSegment.startsWith("/words/")) {
+            var i = Integer.parseInt(urlSegment.split("/")[2].substring(1));
+            var lng = -3.1920 + 0.0070*((i*37)%100)/100.0;
+            var lat = 55.9430 + 0.0030*((i*61)%100)/100.0;
+            return "{\"coordinates\":{\"lng\":" + lng + ",\"lat\":" + lat + "}}";
+        }
+        return noFlyZones;
+    }
+
+    //returns the buildings of a single rectangular building spanning lngs west to east and lats south to north, as GeoJSON
+    public static String building(double west, double south, double east, double north)
+    {
+        return "{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\",\"properties\":{},"
+                + "\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[[" + west + "," + south + "],[" + east + "," + south + "],["
+                + east + "," + north + "],[" + west + "," + north + "],[" + west + "," + south + "]]]}}]}";
+    }
+
+    //returns the snapshot of this day
+    public DaySnapshot snapshot() throws Exception
+    {
+        return DaySnapshot.load(this, new SensorLocation(this, null), "2020", "01", "01");
+    }
+}
@@ -0,0 +1,69 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class FleetPlannerTest
+{
+    private static final Point start = Point.fromLngLat(-3.1878, 55.9444);
+
+    @Test
+    public void sweepSharesOutEverySensorOnce() throws Exception
+    {
+        var snapshot = new FakeDay(31).snapshot();
+        var groups = FleetPlanner.sweepPartition(snapshot, start, 4);
+        assertEquals(4, groups.length);
+        var seen = new HashSet<Integer>();
+        for(var group : groups) {
+            assertTrue(group.length == 7 || group.length == 8);
+            for(var sensor : group) {
+                assertTrue(seen.add(sensor));
+            }
+        }
+        assertEquals(31, seen.size());
+        assertEquals(2, FleetPlanner.sweepPartition(new FakeDay(2).snapshot(), start, 5).length);
+    }
+
+    @Test
+    public void fleetCoversTheDayAndWritesOneMap() throws Exception
+    {
+        var day = new FakeDay(40);
+        var snapshot = day.snapshot();
+        var plans = FleetPlanner.planFleet(snapshot, start, 3, 11, new DroneMovement(NoFlyIndex.load(day)), 3);
+        assertEquals(3, plans.size());
+        var visited = new HashSet<String>();
+        for(var plan : plans) {
+            assertTrue(plan.numMoves() <= DroneMovement.getMaxMoves());
+            for(var k=0; k<plan.numMoves(); k++) {
+                if(plan.sensorHit(k) != -1) {
+                    visited.add(plan.snapshot().location(plan.sensorHit(k)));
+                }
+            }
+        }
+        assertEquals(40, visited.size());
+
+        var map = Paths.get("readings-31-12-1999-fleet.geojson");
+        try {
+            FleetPlanner.writeFiles("31", "12", "1999", plans);
+            assertEquals(WriteReadings.createFeatureCollection(plans).toJson(), new String(Files.readAllBytes(map), StandardCharsets.UTF_8));
+            for(var d=1; d<=3; d++) {
+                var flightpath = Paths.get("flightpath-31-12-1999-drone" + d + ".txt");
+                assertEquals(plans.get(d-1).numMoves(), Files.readAllLines(flightpath).size());
+            }
+        } finally {
+            Files.deleteIfExists(map);
+            for(var d=1; d<=3; d++) {
+                Files.deleteIfExists(Paths.get("flightpath-31-12-1999-drone" + d + ".txt"));
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FlightMathTest
+{
+    @Test
+    public void tablesMatchTheTrigonometry()
+    {
+        for(var d=0; d<FlightMath.numDirs; d++) {
+            var dirInRad = Math.toRadians(d*10);
+            assertEquals(-3.1878 + DroneConstraints.r*Math.cos(dirInRad), FlightMath.nextLng(-3.1878, d*10), 0);
+            assertEquals(55.9444 + DroneConstraints.r*Math.sin(dirInRad), FlightMath.nextLat(55.9444, d*10), 0);
+        }
+        assertTrue(FlightMath.isLatticeDir(350));
+        assertFalse(FlightMath.isLatticeDir(360));
+        assertFalse(FlightMath.isLatticeDir(15));
+    }
+
+    @Test
+    public void moveDirIsTheDirectionOfTheMove()
+    {
+        for(var d=0; d<FlightMath.numDirs; d++) {
+            var lng = FlightMath.nextLng(-3.1878, d*10);
+            var lat = FlightMath.nextLat(55.9444, d*10);
+            assertEquals(d*10, FlightMath.moveDir(-3.1878, 55.9444, lng, lat));
+        }
+    }
+
+    @Test
+    public void squaredDistancesOrderLikeDistances()
+    {
+        assertEquals(25, FlightMath.distSq(0, 0, 3, 4), 0);
+        assertEquals(5, FlightMath.dist(0, 0, 3, 4), 0);
+        assertTrue(FlightMath.distSq(0, 0, 1, 1) < FlightMath.distSq(0, 0, 0, 1.5));
+    }
+}
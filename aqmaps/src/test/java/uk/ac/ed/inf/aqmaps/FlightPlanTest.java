@@ -0,0 +1,53 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class FlightPlanTest
+{
+    private static final Point start = Point.fromLngLat(-3.1878, 55.9444);
+
+    @Test
+    public void planRecordsTheMovesAsFlown() throws Exception
+    {
+        var source = new FakeDay(40);
+        var snapshot = source.snapshot();
+        var plan = new DroneMovement(NoFlyIndex.load(source)).dronePath(snapshot, start);
+        var visited = new boolean[snapshot.size()];
+        var numVisited = 0;
+        for(var k=0; k<plan.numMoves(); k++) {
+            assertEquals(FlightMath.moveDir(plan.lng(k), plan.lat(k), plan.lng(k+1), plan.lat(k+1)), plan.direction(k));
+            if(plan.sensorHit(k) != -1) {
+                visited[plan.sensorHit(k)] = true;
+                numVisited++;
+            }
+        }
+        assertEquals(numVisited, plan.numVisited());
+        for(var i : plan.unvisited()) {
+            assertEquals(false, visited[i]);
+        }
+        assertEquals(snapshot.size(), plan.numVisited() + plan.unvisited().length);
+        assertEquals(plan.numMoves() + 1, plan.positions().size());
+    }
+
+    @Test
+    public void everySinkIsGivenTheOnePlan() throws Exception
+    {
+        var source = new FakeDay(5);
+        var snapshot = source.snapshot();
+        var plan = new DroneMovement(NoFlyIndex.load(source)).dronePath(snapshot, start);
+        var received = new ArrayList<FlightPlan>();
+        FlightSink recorder = (day, month, year, written) -> received.add(written);
+        FlightSink.writeAll(List.of(recorder, recorder), "01", "01", "2020", plan);
+        assertEquals(2, received.size());
+        assertSame(plan, received.get(0));
+        assertSame(plan, received.get(1));
+    }
+}
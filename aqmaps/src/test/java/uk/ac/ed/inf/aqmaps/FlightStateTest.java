@@ -0,0 +1,72 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class FlightStateTest
+{
+    private static final Point start = Point.fromLngLat(-3.1878, 55.9444);
+
+    @Test
+    public void movesStopAtTheLimit()
+    {
+        var flight = new FlightState(start, 2);
+        flight.move(FlightMath.nextLng(flight.lng(), 0), FlightMath.nextLat(flight.lat(), 0), 0, -1);
+        flight.move(FlightMath.nextLng(flight.lng(), 0), FlightMath.nextLat(flight.lat(), 0), 0, -1);
+        assertEquals(2, flight.movesMade());
+        assertEquals(3, flight.positions().size());
+        assertEquals(DroneConstraints.nextPos(0, DroneConstraints.nextPos(0, start)), flight.position());
+        try {
+            flight.move(start.longitude(), start.latitude(), 0, -1);
+        } catch (IllegalStateException e) {
+            return;
+        }
+        throw new AssertionError("a third move was allowed");
+    }
+
+    @Test
+    public void returnLegCountsTowardsTheLimit() throws Exception
+    {
+        var source = new FakeDay(40);
+        var snapshot = source.snapshot();
+        var flight = new DroneMovement(NoFlyIndex.load(source)).fly(snapshot, start);
+        assertTrue(flight.movesMade() <= DroneMovement.getMaxMoves());
+        assertEquals(flight.movesMade(), flight.sensorsVisited(snapshot).size());
+        assertEquals(flight.movesMade() + 1, flight.positions().size());
+        for(var k=0; k<flight.movesMade(); k++) { //the direction recorded is the one the move was made in
+            var dir = flight.direction(k);
+            assertEquals(FlightMath.nextLng(flight.lng(k), dir), flight.lng(k+1), 1e-12);
+            assertEquals(FlightMath.nextLat(flight.lat(k), dir), flight.lat(k+1), 1e-12);
+        }
+    }
+
+    @Test
+    public void concurrentFlightsMatchSequentialOnes() throws Exception
+    {
+        var source = new FakeDay(25);
+        var snapshot = source.snapshot();
+        var planner = new DroneMovement(NoFlyIndex.load(source));
+        var expected = planner.dronePath(snapshot, start);
+        var pool = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<FlightPlan>>();
+            for(var i=0; i<16; i++) {
+                futures.add(pool.submit((Callable<FlightPlan>) () -> planner.dronePath(snapshot, start)));
+            }
+            for(var future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
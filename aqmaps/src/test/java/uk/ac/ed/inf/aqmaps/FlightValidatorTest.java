@@ -0,0 +1,119 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class FlightValidatorTest
+{
+    private static final Point start = Point.fromLngLat(-3.1878, 55.9444);
+    //returns the moves of the violations in the report, in order
+    private static List<Integer> moves(FlightValidator.Report report)
+    {
+        var moves = new ArrayList<Integer>();
+        for(var violation : report.violations) {
+            moves.add(violation.move);
+        }
+        return moves;
+    }
+
+    @Test
+    public void plannedFlightsBreakNoRule() throws Exception
+    {
+        var day = new FakeDay(25, FakeDay.oneBuilding);
+        var noFlyIndex = NoFlyIndex.load(day);
+        var planner = new DroneMovement(noFlyIndex);
+        var validator = new FlightValidator(noFlyIndex, new SensorLocation(day, null));
+        var dir = Files.createTempDirectory("aqmaps-flights");
+        try {
+            for(var seed=1; seed<=3; seed++) {
+                try (var out = ChannelWriter.create(dir.resolve("flightpath-0" + seed + "-01-2020.txt"))) {
+                    WriteFlightpath.writeTxt(out, planner.dronePath(day.snapshot(), start, seed));
+                }
+            }
+            Files.write(dir.resolve("readings-01-01-2020.geojson"), new byte[0]);
+            var files = FlightValidator.flightpathFiles(dir);
+            assertEquals(3, files.size());
+            var reports = validator.validateAll(files, 3);
+            for(var i=0; i<3; i++) {
+                assertEquals(files.get(i), reports.get(i).file);
+                assertTrue(reports.get(i).numMoves > 0);
+                assertTrue(reports.get(i).valid());
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for(var file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void violationsAreReportedWithTheirMoves() throws Exception
+    {
+        var day = new FakeDay(2, FakeDay.oneBuilding);
+        var validator = new FlightValidator(NoFlyIndex.load(day), new SensorLocation(day, null));
+        var lines = new ArrayList<String>();
+        //1: a legal move east; 2: a direction which isn't a multiple of 10; 3: doesn't start where 2 ended;
+        //4: east across the building; 5: north, reading s0.s0.s0 from far away; 6: written as 90 but 3 degrees off
+        var lng = -3.1890;
+        var lat = 55.9445;
+        lines.add("1," + lng + "," + lat + ",0," + FlightMath.nextLng(lng, 0) + "," + lat + ",null");
+        lng = FlightMath.nextLng(lng, 0);
+        lines.add("2," + lng + "," + lat + ",15," + FlightMath.nextLng(lng, 15) + "," + FlightMath.nextLat(lat, 15) + ",null");
+        lng = -3.1889;
+        lines.add("3," + lng + "," + lat + ",0," + FlightMath.nextLng(lng, 0) + "," + lat + ",null");
+        lng = FlightMath.nextLng(lng, 0);
+        lines.add("4," + lng + "," + lat + ",0," + FlightMath.nextLng(lng, 0) + "," + lat + ",null");
+        lng = FlightMath.nextLng(lng, 0);
+        lines.add("5," + lng + "," + lat + ",90," + FlightMath.nextLng(lng, 90) + "," + FlightMath.nextLat(lat, 90) + ",s0.s0.s0");
+        lat = FlightMath.nextLat(lat, 90);
+        lines.add("6," + lng + "," + lat + ",90," + FlightMath.nextLng(lng, 93) + "," + FlightMath.nextLat(lat, 93) + ",null");
+        var file = Files.createTempFile("flightpath", ".txt");
+        try {
+            Files.write(file, lines, StandardCharsets.UTF_8);
+            var report = validator.validate(file);
+            assertEquals(6, report.numMoves);
+            assertEquals(List.of(2, 3, 4, 5, 6), moves(report));
+            assertEquals("move 4: crosses no-fly zone 0", report.violations.get(2).toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void flightsOverTheMovesAllowedAreReported() throws Exception
+    {
+        var day = new FakeDay(0);
+        var validator = new FlightValidator(NoFlyIndex.load(day), new SensorLocation(day, null));
+        var lines = new ArrayList<String>();
+        var lng = start.longitude();
+        var lat = start.latitude();
+        for(var k=1; k<=DroneMovement.getMaxMoves() + 2; k++) {
+            var dir = k%2 == 1 ? 0 : 180;
+            lines.add(k + "," + lng + "," + lat + "," + dir + "," + FlightMath.nextLng(lng, dir) + "," + FlightMath.nextLat(lat, dir) + ",null");
+            lng = FlightMath.nextLng(lng, dir);
+            lat = FlightMath.nextLat(lat, dir);
+        }
+        var file = Files.createTempFile("flightpath", ".txt");
+        try {
+            Files.write(file, lines, StandardCharsets.UTF_8);
+            var report = validator.validate(file);
+            assertEquals(DroneMovement.getMaxMoves() + 2, report.numMoves);
+            assertEquals(List.of(DroneMovement.getMaxMoves() + 1), moves(report));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
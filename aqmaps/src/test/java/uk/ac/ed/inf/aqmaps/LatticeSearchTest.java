@@ -0,0 +1,67 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class LatticeSearchTest
+{
+    //a U-shaped building opening to the east, in the middle of the confinement area
+    private static NoFlyIndex cupShapedBuilding()
+    {
+        var corners = List.of(
+                Point.fromLngLat(-3.1900, 55.9435), Point.fromLngLat(-3.1870, 55.9435), Point.fromLngLat(-3.1870, 55.9440),
+                Point.fromLngLat(-3.1890, 55.9440), Point.fromLngLat(-3.1890, 55.9448), Point.fromLngLat(-3.1870, 55.9448),
+                Point.fromLngLat(-3.1870, 55.9453), Point.fromLngLat(-3.1900, 55.9453), Point.fromLngLat(-3.1900, 55.9435));
+        var sides = new ArrayList<List<Point>>();
+        for(var i=0; i<corners.size()-1; i++) {
+            sides.add(List.of(corners.get(i), corners.get(i+1)));
+        }
+        return NoFlyIndex.fromCoordPairs(List.of(sides));
+    }
+
+    @Test
+    public void openSpaceNeedsTheStraightLineNumberOfMoves()
+    {
+        var search = new LatticeSearch(NoFlyIndex.fromCoordPairs(List.of()));
+        var moves = search.countMoves(-3.1910, 55.9430, -3.1860, 55.9455, 0.0002, 150);
+        var straight = (int) Math.ceil((Math.hypot(0.0050, 0.0025) - 0.0002)/DroneConstraints.r);
+        assertTrue(moves >= straight && moves <= straight+1);
+    }
+
+    @Test
+    public void legIsLegalAndNoLongerThanTheLegPlanners()
+    {
+        var index = cupShapedBuilding();
+        var leg = new LatticeSearch(index).search(-3.1880, 55.9444, -3.1910, 55.9444, 0.0002, 150);
+        assertNotNull(leg);
+        var lng = -3.1880;
+        var lat = 55.9444;
+        for(var k=0; k<leg.length; k+=3) {
+            assertTrue(index.noIntersections(lng, lat, leg[k], leg[k+1]));
+            assertTrue(DroneConstraints.withinArea(leg[k], leg[k+1]));
+            assertEquals(DroneConstraints.r, Math.hypot(leg[k]-lng, leg[k+1]-lat), 1e-12);
+            lng = leg[k];
+            lat = leg[k+1];
+        }
+        assertTrue(Math.hypot(-3.1910-lng, 55.9444-lat) < 0.0002);
+        var legPlannerMoves = new LegPlanner(index).countMoves(-3.1880, 55.9444, -3.1910, 55.9444, 0.0002, 150);
+        assertTrue(leg.length/3 <= legPlannerMoves);
+        assertEquals(leg.length/3, new LatticeSearch(index).countMoves(-3.1880, 55.9444, -3.1910, 55.9444, 0.0002, 150));
+    }
+
+    @Test
+    public void goalInsideABuildingIsNotReached()
+    {
+        var search = new LatticeSearch(cupShapedBuilding());
+        assertNull(search.search(-3.1860, 55.9444, -3.1895, 55.9444, 0.0002, 20));
+    }
+}
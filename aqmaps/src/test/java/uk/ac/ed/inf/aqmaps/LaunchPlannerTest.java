@@ -0,0 +1,60 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class LaunchPlannerTest
+{
+    //one building in the middle of the confinement area, covering the middle four cells of a 4x4 grid
+    private static final String building = FakeDay.building(-3.1900, 55.9435, -3.1870, 55.9455);
+
+    @Test
+    public void gridLeavesOutCandidatesInsideBuildings() throws Exception
+    {
+        var noFlyIndex = NoFlyIndex.load(new FakeDay(0, building));
+        assertEquals(16, DroneConstraints.areaGrid(4, 4).size());
+        var candidates = LaunchPlanner.parseCandidates("4x4", noFlyIndex);
+        assertEquals(12, candidates.size());
+        for(var candidate : candidates) {
+            assertTrue(DroneConstraints.withinArea(candidate));
+            assertTrue(noFlyIndex.insideAnyBuilding(candidate.longitude(), candidate.latitude()) == false);
+        }
+        var listed = LaunchPlanner.parseCandidates("55.9444,-3.1878; 55.9430,-3.1900", noFlyIndex);
+        assertEquals(List.of(Point.fromLngLat(-3.1878, 55.9444), Point.fromLngLat(-3.1900, 55.9430)), listed);
+    }
+
+    @Test
+    public void candidatesAreRankedBySensorsThenMoves() throws Exception
+    {
+        var day = new FakeDay(12);
+        var noFlyIndex = NoFlyIndex.load(day);
+        var candidates = DroneConstraints.areaGrid(3, 2);
+        candidates.add(Point.fromLngLat(-3.2, 55.9444)); //outside the confinement area
+        var flightsBefore = RunMetrics.shared().getFlights();
+        var ranked = LaunchPlanner.rank(day.snapshot(), candidates, noFlyIndex, 3, 2);
+        assertEquals(candidates.size(), ranked.size());
+        assertEquals(flightsBefore, RunMetrics.shared().getFlights()); //trial flights aren't counted as flights of the run
+        for(var i=1; i<ranked.size()-1; i++) {
+            var better = ranked.get(i-1);
+            var worse = ranked.get(i);
+            assertNull(worse.error);
+            assertTrue(better.sensorsVisited > worse.sensorsVisited
+                    || better.sensorsVisited == worse.sensorsVisited && better.movesUsed <= worse.movesUsed);
+        }
+        assertNotNull(ranked.get(ranked.size()-1).error);
+
+        //the ranking holds the same flights as planning each candidate on its own
+        var best = ranked.get(0);
+        var plan = new DroneMovement(noFlyIndex).dronePath(day.snapshot(), best.initPos, 3);
+        assertEquals(plan.numMoves(), best.movesUsed);
+        assertEquals(plan.numVisited(), best.sensorsVisited);
+    }
+}
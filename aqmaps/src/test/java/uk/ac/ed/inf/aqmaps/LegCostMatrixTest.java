@@ -0,0 +1,57 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class LegCostMatrixTest
+{
+    private static final Point start = Point.fromLngLat(-3.1878, 55.9444);
+    @Test
+    public void parallelMatrixMatchesSequentialOne() throws Exception
+    {
+        var day = new FakeDay(20, FakeDay.oneBuilding);
+        var snapshot = day.snapshot();
+        var planner = new DroneMovement(NoFlyIndex.load(day));
+        var parallelPool = new ForkJoinPool(4);
+        var sequentialPool = new ForkJoinPool(1);
+        try {
+            var parallel = LegCostMatrix.compute(planner, snapshot, start, parallelPool);
+            var sequential = LegCostMatrix.compute(planner, snapshot, start, sequentialPool);
+            assertArrayEquals(sequential.movesMatrix(), parallel.movesMatrix());
+            assertArrayEquals(sequential.lengthsMatrix(), parallel.lengthsMatrix(), 0);
+        } finally {
+            parallelPool.shutdown();
+            sequentialPool.shutdown();
+        }
+    }
+
+    @Test
+    public void legsAreNoShorterThanStraightLines() throws Exception
+    {
+        var day = new FakeDay(20, FakeDay.oneBuilding);
+        var snapshot = day.snapshot();
+        var matrix = LegCostMatrix.compute(new DroneMovement(NoFlyIndex.load(day)), snapshot, start);
+        assertEquals(21, matrix.size());
+        for(var i=0; i<matrix.size(); i++) {
+            assertEquals(0, matrix.moves(i, i));
+            for(var j=0; j<matrix.size(); j++) {
+                if(i != j) {
+                    var goalRange = j == matrix.start() ? DroneConstraints.r : DroneMovement.getConnectRange();
+                    var from = i == matrix.start() ? start : snapshot.point(i);
+                    var to = j == matrix.start() ? start : snapshot.point(j);
+                    var straight = DroneConstraints.euclidDist(from, to);
+                    assertTrue(matrix.length(i, j) >= straight - 1e-12);
+                    assertTrue(matrix.moves(i, j) >= Math.ceil((straight - goalRange)/DroneConstraints.r - 1e-9));
+                    assertTrue(matrix.moves(i, j) < LegCostMatrix.unreachable);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class LegPlannerTest
+{
+    //a U-shaped building opening to the east, in the middle of the confinement area
+    private static NoFlyIndex cupShapedBuilding()
+    {
+        var corners = List.of(
+                Point.fromLngLat(-3.1900, 55.9435), Point.fromLngLat(-3.1870, 55.9435), Point.fromLngLat(-3.1870, 55.9440),
+                Point.fromLngLat(-3.1890, 55.9440), Point.fromLngLat(-3.1890, 55.9448), Point.fromLngLat(-3.1870, 55.9448),
+                Point.fromLngLat(-3.1870, 55.9453), Point.fromLngLat(-3.1900, 55.9453), Point.fromLngLat(-3.1900, 55.9435));
+        var sides = new ArrayList<List<Point>>();
+        for(var i=0; i<corners.size()-1; i++) {
+            sides.add(List.of(corners.get(i), corners.get(i+1)));
+        }
+        return NoFlyIndex.fromCoordPairs(List.of(sides));
+    }
+
+    @Test
+    public void pathGoesRoundTheBuilding()
+    {
+        var index = cupShapedBuilding();
+        var planner = new LegPlanner(index);
+        var path = planner.path(-3.1880, 55.9444, -3.1910, 55.9444); //from inside the cup to the far side of its back wall
+        assertNotNull(path);
+        assertTrue(path.length > 4);
+        for(var i=0; i+3<path.length; i+=2) {
+            assertTrue(index.noIntersections(path[i], path[i+1], path[i+2], path[i+3]));
+        }
+    }
+
+    @Test
+    public void movesReachTheGoalWithoutCrossingTheBuilding()
+    {
+        var index = cupShapedBuilding();
+        var planner = new LegPlanner(index);
+        var lng = -3.1880;
+        var lat = 55.9444;
+        var goalLng = -3.1910;
+        var goalLat = 55.9444;
+        var moves = 0;
+        while(Math.hypot(goalLng-lng, goalLat-lat) >= 0.0002) {
+            var move = planner.nextMove(lng, lat, goalLng, goalLat, 0.0002);
+            assertNotNull(move);
+            assertTrue(index.noIntersections(lng, lat, move[0], move[1]));
+            assertEquals(DroneConstraints.r, Math.hypot(move[0]-lng, move[1]-lat), 1e-12);
+            assertEquals(0, (int) move[2] % 10);
+            lng = move[0];
+            lat = move[1];
+            assertTrue(++moves < 40);
+        }
+    }
+}
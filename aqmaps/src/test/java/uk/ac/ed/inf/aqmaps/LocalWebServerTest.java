@@ -0,0 +1,66 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LocalWebServerTest
+{
+    private static ReadWebServer reader(LocalWebServer server)
+    {
+        return new ReadWebServer(String.valueOf(server.port()), new ResponseCache(64, 60_000), 4);
+    }
+
+    @Test
+    public void servesTheSourceAfterTheLatency() throws Exception
+    {
+        var day = new FakeDay(3);
+        try (var server = LocalWebServer.start(day, 0, new LocalWebServer.Faults(50, 0, 0, 1), 4)) {
+            var started = System.nanoTime();
+            var body = reader(server).webServerContent("/maps/2020/01/01/air-quality-data.json");
+            assertTrue(System.nanoTime() - started >= 50_000_000L);
+            assertEquals(day.webServerContent("/maps/2020/01/01/air-quality-data.json"), body);
+            var snapshot = DaySnapshot.load(reader(server), new SensorLocation(reader(server), null), "2020", "01", "01");
+            assertEquals(day.snapshot().points(), snapshot.points());
+        }
+    }
+
+    @Test
+    public void injectedErrorsAreReportedAndRepeatable() throws Exception
+    {
+        var segments = List.of("/words/s0/s0/s0/details.json", "/words/s1/s1/s1/details.json", "/words/s2/s2/s2/details.json");
+        var failures = new int[2];
+        for(var run=0; run<2; run++) {
+            try (var server = LocalWebServer.start(new FakeDay(3), 0, new LocalWebServer.Faults(0, 0, 0.5, 42), 4)) {
+                var reader = reader(server);
+                for(var i=0; i<20; i++) {
+                    for(var segment : segments) {
+                        try {
+                            reader.webServerContent(segment);
+                        } catch (IOException e) {
+                            assertTrue(e.getMessage().contains(String.valueOf(LocalWebServer.injectedErrorStatus)));
+                            failures[run]++;
+                        }
+                    }
+                }
+                assertTrue(server.errorsInjected() > 0);
+            }
+        }
+        assertEquals(failures[0], failures[1]);
+    }
+
+    @Test(expected = ConnectException.class)
+    public void unreachableServerIsAnException() throws Exception
+    {
+        int port;
+        try (var server = LocalWebServer.start(new FakeDay(1), 0, LocalWebServer.Faults.none(), 1)) {
+            port = server.port();
+        }
+        new ReadWebServer(String.valueOf(port), new ResponseCache(64, 60_000), 1).webServerContent("/buildings/no-fly-zones.geojson");
+    }
+}
@@ -0,0 +1,54 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class NoFlyIndexTest
+{
+    //returns the sides of numBuildings random polygons scattered over the confinement area, as pairs of coordinates
+    private static List<List<List<Point>>> randomBuildings(Random random, int numBuildings)
+    {
+        var buildings = new ArrayList<List<List<Point>>>();
+        for(var b=0; b<numBuildings; b++) {
+            var centreLng = -3.192473 + random.nextDouble()*0.008154;
+            var centreLat = 55.942617 + random.nextDouble()*0.003616;
+            var numCorners = 3 + random.nextInt(8);
+            var corners = new ArrayList<Point>();
+            for(var i=0; i<numCorners; i++) {
+                var angle = 2*Math.PI*i/numCorners;
+                var radius = 0.00005 + random.nextDouble()*0.0004;
+                corners.add(Point.fromLngLat(centreLng + radius*Math.cos(angle), centreLat + radius*Math.sin(angle)));
+            }
+            corners.add(corners.get(0));
+            var sides = new ArrayList<List<Point>>();
+            for(var i=0; i<numCorners; i++) {
+                sides.add(List.of(corners.get(i), corners.get(i+1)));
+            }
+            buildings.add(sides);
+        }
+        return buildings;
+    }
+
+    @Test
+    public void gridMatchesBruteForceOnDenseMaps()
+    {
+        var random = new Random(42);
+        for(var numBuildings : new int[] {1, 4, 50, 400}) {
+            var index = NoFlyIndex.fromCoordPairs(randomBuildings(random, numBuildings));
+            for(var i=0; i<5000; i++) {
+                var from = Point.fromLngLat(-3.1935 + random.nextDouble()*0.0102, 55.9416 + random.nextDouble()*0.0056);
+                var length = i%2 == 0 ? DroneConstraints.r : random.nextDouble()*0.005;
+                var angle = random.nextInt(36)*Math.PI/18;
+                var to = Point.fromLngLat(from.longitude() + length*Math.cos(angle), from.latitude() + length*Math.sin(angle));
+                assertArrayEquals(index.intersectingEdgesBruteForce(from, to), index.intersectingEdges(from, to));
+            }
+        }
+    }
+}
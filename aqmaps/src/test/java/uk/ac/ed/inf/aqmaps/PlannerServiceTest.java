@@ -0,0 +1,88 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class PlannerServiceTest
+{
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    private static HttpResponse<String> get(PlannerService service, String pathAndQuery) throws Exception
+    {
+        var request = HttpRequest.newBuilder().uri(URI.create("http://localhost:" + service.port() + pathAndQuery)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void answersThePlanOfTheFlight() throws Exception
+    {
+        var day = new FakeDay(12);
+        var expected = new DroneMovement(NoFlyIndex.load(day)).dronePath(day.snapshot(), Point.fromLngLat(-3.1878, 55.9444), 7);
+        try (var service = PlannerService.start(day, new SensorLocation(day, null), new DroneMovement(NoFlyIndex.load(day)), 0, 2, 4)) {
+            var readings = get(service, "/plan?date=01-01-2020&lat=55.9444&lng=-3.1878&seed=7");
+            assertEquals(200, readings.statusCode());
+            assertEquals(WriteReadings.createFeatureCollection(expected).toJson(), readings.body());
+            assertEquals(String.valueOf(expected.numMoves()), readings.headers().firstValue("X-Moves").get());
+
+            var flightpath = get(service, "/plan?date=01-01-2020&lat=55.9444&lng=-3.1878&seed=7&format=txt");
+            assertEquals(200, flightpath.statusCode());
+            assertEquals(expected.numMoves(), flightpath.body().split(System.lineSeparator()).length);
+            assertEquals(2, service.plansServed());
+        }
+    }
+
+    @Test
+    public void malformedRequestsAreRejected() throws Exception
+    {
+        var day = new FakeDay(3);
+        try (var service = PlannerService.start(day, new SensorLocation(day, null), new DroneMovement(NoFlyIndex.load(day)), 0, 1, 4)) {
+            assertEquals(400, get(service, "/plan?date=32-01-2020&lat=55.9444&lng=-3.1878").statusCode());
+            assertEquals(400, get(service, "/plan?date=31-02-2020&lat=55.9444&lng=-3.1878").statusCode()); //not moved to 29-02
+            assertEquals(400, get(service, "/plan?date=01-01-2020&lat=55.9444").statusCode());
+            assertEquals(400, get(service, "/plan?date=01-01-2020&lat=56&lng=-3.1878").statusCode()); //outside the confinement area
+            assertEquals(400, get(service, "/plan?date=01-01-2020&lat=55.9444&lng=-3.1878&format=kml").statusCode());
+            assertEquals(0, service.plansServed());
+        }
+    }
+
+    @Test
+    public void concurrentRequestsLoadADayOnce() throws Exception
+    {
+        var day = new FakeDay(8);
+        var loads = new AtomicInteger();
+        ContentSource source = (urlSegment) -> {
+            if(urlSegment.endsWith("air-quality-data.json")) {
+                loads.incrementAndGet();
+                Thread.sleep(50); //long enough for the other requests to arrive while the day is loading
+            }
+            return day.webServerContent(urlSegment);
+        };
+        try (var service = PlannerService.start(source, new SensorLocation(source, null), new DroneMovement(NoFlyIndex.load(source)), 0, 4, 4)) {
+            var responses = new ArrayList<CompletableFuture<HttpResponse<String>>>();
+            for(var i=0; i<8; i++) {
+                var request = HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:" + service.port() + "/plan?date=01-01-2020&lat=55.9444&lng=-3.1878&seed=" + i)).build();
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            for(var response : responses) {
+                assertEquals(200, response.get().statusCode());
+            }
+            assertEquals(1, loads.get());
+            var date = LocalDate.of(2020, 1, 1);
+            assertSame(service.snapshot(date), service.snapshot(date));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class ReplannerTest
+{
+    private static final Point home = Point.fromLngLat(-3.1878, 55.9444);
+
+    //returns True if the last position of plan is close enough to home to end the flight
+    private static boolean endsAtHome(FlightPlan plan)
+    {
+        var end = plan.numMoves();
+        return FlightMath.distSq(plan.lng(end), plan.lat(end), home.longitude(), home.latitude()) < DroneConstraints.r*DroneConstraints.r;
+    }
+
+    @Test
+    public void replanSkipsADeadSensorAndReusesLegs() throws Exception
+    {
+        var day = new FakeDay(15);
+        var snapshot = day.snapshot();
+        var planner = new DroneMovement(NoFlyIndex.load(day));
+        var full = planner.dronePath(snapshot, home, 4);
+        var replanner = new Replanner(planner, home, 4);
+
+        //after 10 moves the sensors not yet visited, less one which has died, are still to visit
+        var visited = new boolean[snapshot.size()];
+        for(var k=0; k<10; k++) {
+            if(full.sensorHit(k) != -1) {
+                visited[full.sensorHit(k)] = true;
+            }
+        }
+        var stillToVisit = new int[snapshot.size()];
+        var numLeft = 0;
+        var dead = -1;
+        for(var i=0; i<snapshot.size(); i++) {
+            if(visited[i] == false) {
+                if(dead == -1) {
+                    dead = i;
+                }
+                else {
+                    stillToVisit[numLeft++] = i;
+                }
+            }
+        }
+        stillToVisit = Arrays.copyOf(stillToVisit, numLeft);
+
+        var currentPos = Point.fromLngLat(full.lng(10), full.lat(10));
+        var plan = replanner.replan(snapshot, stillToVisit, currentPos, DroneMovement.getMaxMoves() - 10);
+        assertEquals(currentPos, Point.fromLngLat(plan.lng(0), plan.lat(0)));
+        assertEquals(numLeft, plan.numVisited());
+        assertTrue(endsAtHome(plan));
+        var locations = new HashSet<String>();
+        for(var k=0; k<plan.numMoves(); k++) {
+            if(plan.sensorHit(k) != -1) {
+                locations.add(plan.snapshot().location(plan.sensorHit(k)));
+            }
+        }
+        assertTrue(locations.contains(snapshot.location(dead)) == false);
+
+        //replanning over the same sensors from further on plans no leg between sensors again
+        var legs = replanner.cachedLegs();
+        assertEquals(numLeft*numLeft, legs); //numLeft*(numLeft-1) between sensors and numLeft back home
+        replanner.replan(snapshot, stillToVisit, Point.fromLngLat(plan.lng(5), plan.lat(5)), DroneMovement.getMaxMoves() - 15);
+        assertEquals(legs, replanner.cachedLegs());
+    }
+
+    @Test
+    public void shrunkBudgetLeavesSensorsOutButGetsHome() throws Exception
+    {
+        var day = new FakeDay(20);
+        var snapshot = day.snapshot();
+        var planner = new DroneMovement(NoFlyIndex.load(day));
+        var replanner = new Replanner(planner, home, 9);
+        var all = new int[snapshot.size()];
+        for(var i=0; i<all.length; i++) {
+            all[i] = i;
+        }
+        var movesLeft = 25;
+        var plan = replanner.replan(snapshot, all, home, movesLeft);
+        assertTrue(plan.numMoves() <= movesLeft);
+        assertTrue(plan.numVisited() > 0);
+        assertTrue(plan.numVisited() < snapshot.size());
+        assertTrue(endsAtHome(plan));
+    }
+}
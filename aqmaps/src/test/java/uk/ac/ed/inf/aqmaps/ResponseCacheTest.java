@@ -0,0 +1,34 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class ResponseCacheTest
+{
+    @Test
+    public void evictsLeastRecentlyUsed()
+    {
+        var cache = new ResponseCache(2, 60_000);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void expiredEntriesAreMisses() throws InterruptedException
+    {
+        var cache = new ResponseCache(4, 1);
+        cache.put("a", "1");
+        Thread.sleep(5);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+}
@@ -0,0 +1,78 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class RunMetricsTest
+{
+    @Test
+    public void histogramPercentilesAreBucketBounds()
+    {
+        var histogram = new Histogram();
+        for(var v=1; v<=100; v++) {
+            histogram.record(v);
+        }
+        assertEquals(100, histogram.count());
+        assertEquals(5050, histogram.sum());
+        assertEquals(100, histogram.max());
+        assertEquals(64, histogram.percentile(0.5)); //the 50th value lies in [32, 64)
+        assertEquals(128, histogram.percentile(0.99));
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(0.5));
+    }
+
+    @Test
+    public void fetchesAndFlightsAreCounted() throws Exception
+    {
+        var metrics = RunMetrics.shared();
+        var fetchesBefore = metrics.getFetches();
+        var hitsBefore = metrics.getFetchCacheHits();
+        var bytesBefore = metrics.getFetchBytes();
+        var flightsBefore = metrics.getFlights();
+        var movesBefore = metrics.getMoves();
+        var returnLegsBefore = metrics.getReturnLegMoves();
+        var queriesBefore = metrics.getIntersectionQueries();
+        var day = new FakeDay(10);
+        try (var server = LocalWebServer.start(day, 0, LocalWebServer.Faults.none(), 2)) {
+            var reader = new ReadWebServer(String.valueOf(server.port()), new ResponseCache(64, 60_000), 2);
+            var body = reader.webServerContent("/buildings/no-fly-zones.geojson");
+            reader.webServerContent("/buildings/no-fly-zones.geojson");
+            assertEquals(fetchesBefore + 2, metrics.getFetches());
+            assertEquals(hitsBefore + 1, metrics.getFetchCacheHits());
+            assertEquals(bytesBefore + body.length(), metrics.getFetchBytes());
+        }
+        var planner = new DroneMovement(NoFlyIndex.load(day));
+        var plan = planner.dronePath(day.snapshot(), Point.fromLngLat(-3.1878, 55.9444));
+        assertEquals(flightsBefore + 1, metrics.getFlights());
+        assertEquals(movesBefore + plan.numMoves(), metrics.getMoves());
+        assertEquals(returnLegsBefore + RunMetrics.returnLegMoves(plan), metrics.getReturnLegMoves());
+        assertTrue(RunMetrics.returnLegMoves(plan) > 0);
+
+        //a trial flight which isn't made into a plan counts towards none of the flight counts
+        planner.fly(day.snapshot(), Point.fromLngLat(-3.1878, 55.9444));
+        assertEquals(flightsBefore + 1, metrics.getFlights());
+        assertEquals(returnLegsBefore + RunMetrics.returnLegMoves(plan), metrics.getReturnLegMoves());
+        assertTrue(metrics.getIntersectionQueries() > queriesBefore);
+    }
+
+    @Test
+    public void metricsAreVisibleThroughJmx() throws Exception
+    {
+        RunMetrics.registerMBean();
+        RunMetrics.registerMBean(); //registering again is harmless
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var flights = (Long) server.getAttribute(new ObjectName(RunMetrics.objectName), "Flights");
+        assertEquals(RunMetrics.shared().getFlights(), flights.longValue());
+        var json = (String) server.getAttribute(new ObjectName(RunMetrics.objectName), "Json");
+        assertTrue(json.contains("\"segmentTests\""));
+    }
+}
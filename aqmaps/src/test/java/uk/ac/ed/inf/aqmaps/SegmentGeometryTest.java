@@ -0,0 +1,39 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SegmentGeometryTest
+{
+    @Test
+    public void verticalSegmentsCross()
+    {
+        //a vertical move through a horizontal side, and a horizontal move through a vertical side
+        assertTrue(SegmentGeometry.segmentsIntersect(0, -1, 0, 1, -1, 0, 1, 0));
+        assertTrue(SegmentGeometry.segmentsIntersect(-1, 0, 1, 0, 0, -1, 0, 1));
+        assertFalse(SegmentGeometry.segmentsIntersect(0, 0.5, 0, 1, -1, 0, 1, 0));
+        assertEquals(0.5, SegmentGeometry.intersectionParam(0, -1, 0, 1, -1, 0, 1, 0), 0);
+    }
+
+    @Test
+    public void collinearSegmentsOverlapOnlyWhenTheyShareAPoint()
+    {
+        assertTrue(SegmentGeometry.segmentsIntersect(0, 0, 2, 2, 1, 1, 3, 3));
+        assertTrue(SegmentGeometry.segmentsIntersect(0, 0, 1, 0, 1, 0, 2, 0));
+        assertFalse(SegmentGeometry.segmentsIntersect(0, 0, 1, 0, 1.5, 0, 2, 0));
+        assertFalse(SegmentGeometry.segmentsIntersect(0, 0, 1, 1, 0, 1, 1, 2)); //parallel
+        assertEquals(0.25, SegmentGeometry.intersectionParam(0, 0, 4, 0, 1, 0, 3, 0), 0);
+        assertEquals(0, SegmentGeometry.intersectionParam(2, 0, 4, 0, 1, 0, 3, 0), 0);
+    }
+
+    @Test
+    public void touchingAtAnEndCounts()
+    {
+        assertTrue(SegmentGeometry.segmentsIntersect(0, 0, 1, 1, 1, 1, 2, 0));
+        assertTrue(SegmentGeometry.segmentsIntersect(0, 0, 2, 0, 1, 0, 1, 5));
+        assertFalse(SegmentGeometry.segmentsIntersect(0, 0, 2, 0, 1, 0.001, 1, 5));
+    }
+}
@@ -0,0 +1,64 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class StreamingWritersTest
+{
+    private static final Point start = Point.fromLngLat(-3.1878, 55.9444);
+
+    //returns the plan of a flight cut short after 12 moves, such that some sensors are left unvisited
+    private static FlightPlan shortPlan(DaySnapshot snapshot, NoFlyIndex noFlyIndex)
+    {
+        var full = new DroneMovement(noFlyIndex).fly(snapshot, start);
+        var flight = new FlightState(start, 12);
+        for(var k=0; k<12; k++) {
+            flight.move(full.lng(k+1), full.lat(k+1), full.direction(k), full.sensor(k));
+        }
+        return FlightPlan.of(snapshot, flight);
+    }
+
+    @Test
+    public void geojsonMatchesTheFeatureCollection() throws Exception
+    {
+        var source = new FakeDay(20);
+        var snapshot = source.snapshot();
+        var plan = shortPlan(snapshot, NoFlyIndex.load(source));
+        var file = Paths.get("readings-31-12-1999.geojson");
+        try {
+            WriteReadings.writeGeojsonFile("31", "12", "1999", plan);
+            var expected = WriteReadings.createFeatureCollection(plan).toJson();
+            assertEquals(expected, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void flightpathLinesAreFormattedAsBefore() throws Exception
+    {
+        var source = new FakeDay(20);
+        var snapshot = source.snapshot();
+        var plan = shortPlan(snapshot, NoFlyIndex.load(source));
+        var file = Paths.get("flightpath-31-12-1999.txt");
+        try {
+            WriteFlightpath.writeTxtFile("31", "12", "1999", plan);
+            var expected = new StringBuilder();
+            for(var i=0; i<plan.numMoves(); i++) {
+                var sensorLoc = plan.sensorHit(i) == -1 ? null : snapshot.location(plan.sensorHit(i));
+                expected.append((i+1) + "," + plan.lng(i) + "," + plan.lat(i) + "," + plan.direction(i) + ","
+                        + plan.lng(i+1) + "," + plan.lat(i+1) + "," + sensorLoc + System.lineSeparator());
+            }
+            assertEquals(expected.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.mapbox.geojson.Point;
+
+public class TourOptimizerTest
+{
+    private static LegCostMatrix costs(int numSensors) throws Exception
+    {
+        var day = new FakeDay(numSensors);
+        return LegCostMatrix.compute(new DroneMovement(NoFlyIndex.load(day)), day.snapshot(), Point.fromLngLat(-3.1878, 55.9444));
+    }
+
+    @Test
+    public void optimizedTourVisitsEverySensorOnceAndBeatsGreedy() throws Exception
+    {
+        var costs = costs(33);
+        var optimizer = new TourOptimizer(costs, 5678);
+        var tour = optimizer.optimize();
+        var sorted = tour.clone();
+        Arrays.sort(sorted);
+        for(var i=0; i<sorted.length; i++) {
+            assertEquals(i, sorted[i]);
+        }
+        assertTrue(optimizer.cost(tour) <= optimizer.cost(optimizer.greedyTour()));
+    }
+
+    @Test
+    public void sameSeedGivesSameTour() throws Exception
+    {
+        var costs = costs(25);
+        var first = new TourOptimizer(costs, 42, 50, 60_000).optimize();
+        var second = new TourOptimizer(costs, 42, 50, 60_000).optimize();
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    public void smallToursAreHandled() throws Exception
+    {
+        for(var numSensors=0; numSensors<4; numSensors++) {
+            var costs = costs(numSensors);
+            assertEquals(numSensors, new TourOptimizer(costs, 1, 10, 60_000).optimize().length);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class WordsCoordCacheTest
+{
+    @Test
+    public void recordsSurviveReopening() throws IOException
+    {
+        var file = Files.createTempFile("words", ".cache");
+        try {
+            var cache = WordsCoordCache.open(file);
+            assertNull(cache.get("slips", "mile", "often"));
+            cache.put("slips", "mile", "often", -3.1863, 55.9452);
+            assertArrayEquals(new double[] {-3.1863, 55.9452}, cache.get("slips", "mile", "often"), 0);
+            cache.close();
+
+            var reopened = WordsCoordCache.open(file);
+            assertEquals(1, reopened.size());
+            assertArrayEquals(new double[] {-3.1863, 55.9452}, reopened.get("slips", "mile", "often"), 0);
+            reopened.close();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void readersSeeRecordsAppendedByOthers() throws IOException
+    {
+        var file = Files.createTempFile("words", ".cache");
+        try {
+            var reader = WordsCoordCache.open(file);
+            var writer = WordsCoordCache.open(file);
+            for(var i=0; i<100; i++) {
+                writer.put("word" + i, "two", "three", i, -i);
+            }
+            assertArrayEquals(new double[] {42, -42}, reader.get("word42", "two", "three"), 0);
+            assertEquals(100, reader.size());
+
+            //only the writer grows the file; a reader mapping it again maps no further than its end
+            writer.put("word100", "two", "three", 100, -100);
+            var fileSize = Files.size(file);
+            assertNull(reader.get("not", "yet", "cached"));
+            assertEquals(101, reader.size());
+            assertEquals(fileSize, Files.size(file));
+            reader.close();
+            writer.close();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void manyRecordsAreReadBackConcurrently() throws Exception
+    {
+        var file = Files.createTempFile("words", ".cache");
+        try {
+            var writer = WordsCoordCache.open(file);
+            var reader = WordsCoordCache.open(file);
+            for(var i=0; i<2000; i++) {
+                writer.put("word" + i, "two", "three", i, -i);
+            }
+            var threads = new Thread[4];
+            var failures = new AtomicInteger();
+            for(var t=0; t<threads.length; t++) {
+                var first = t;
+                threads[t] = new Thread(() -> {
+                    try {
+                        for(var i=first; i<2000; i+=threads.length) {
+                            var coords = reader.get("word" + i, "two", "three");
+                            if(coords == null || coords[0] != i || coords[1] != -i) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    }
+                });
+                threads[t].start();
+            }
+            for(var thread : threads) {
+                thread.join();
+            }
+            assertEquals(0, failures.get());
+            assertEquals(2000, reader.size());
+            writer.close();
+            reader.close();
+
+            var reopened = WordsCoordCache.open(file);
+            assertEquals(2000, reopened.size());
+            assertArrayEquals(new double[] {1999, -1999}, reopened.get("word1999", "two", "three"), 0);
+            reopened.close();
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package uk.ac.ed.inf.aqmaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+
+public class ZipContentSourceTest
+{
+    @Test
+    public void filesAreServedByTheirUrlSegment() throws IOException
+    {
+        var zip = Files.createTempFile("webserver", ".zip");
+        try {
+            try (var out = new ZipOutputStream(Files.newOutputStream(zip))) {
+                out.putNextEntry(new ZipEntry("WebServer/buildings/"));
+                out.putNextEntry(new ZipEntry("WebServer/buildings/no-fly-zones.geojson"));
+                out.write("{}".getBytes(StandardCharsets.UTF_8));
+                out.putNextEntry(new ZipEntry("__MACOSX/WebServer/buildings/._no-fly-zones.geojson"));
+                out.write(1);
+            }
+            var source = ZipContentSource.open(zip);
+            assertEquals(1, source.size());
+            assertEquals("{}", source.webServerContent("/buildings/no-fly-zones.geojson"));
+            try {
+                source.webServerContent("/maps/2020/01/01/air-quality-data.json");
+            } catch (FileNotFoundException e) {
+                return;
+            }
+            throw new AssertionError("a missing file was served");
+        } finally {
+            Files.delete(zip);
+        }
+    }
+
+    @Test
+    public void bundledZipHoldsWholeDays() throws Exception
+    {
+        var zip = Paths.get("..", "WebServer.zip");
+        assumeTrue(Files.exists(zip));
+        var source = ZipContentSource.open(zip);
+        var snapshot = DaySnapshot.load(source, new SensorLocation(source, null), "2020", "01", "01");
+        assertEquals(33, snapshot.size());
+        assertEquals(4, NoFlyIndex.load(source).numBuildings());
+    }
+}